@@ -1,7 +1,10 @@
 package com.bookswap.bookswap.config;
 
 import com.bookswap.bookswap.repository.UserRepository;
+import com.bookswap.bookswap.service.UserPrincipalCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -18,23 +21,34 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class ApplicationConfig {
 
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
+    // Used by the JWT filter on every authenticated request, so it is served from the principal cache
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return userPrincipalCache::load;
     }
 
+    // BCrypt runs on its own bounded pool so hashing bursts can't starve the request threads
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${auth.password-hash.strength:10}") int strength,
+            @Value("${auth.password-hash.pool-size:0}") int poolSize,
+            @Value("${auth.password-hash.queue-capacity:64}") int queueCapacity,
+            @Value("${auth.password-hash.timeout-ms:5000}") long timeoutMillis,
+            MeterRegistry meterRegistry) {
+        // 0 means half the available cores, but at least two threads
+        int threads = poolSize > 0 ? poolSize : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, queueCapacity, timeoutMillis, meterRegistry);
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        // Logins always check the password against the current row, never a cached copy
+        authProvider.setUserDetailsService(username -> userRepository.findByEmail(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username)));
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
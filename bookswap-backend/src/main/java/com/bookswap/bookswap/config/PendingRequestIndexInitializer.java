@@ -0,0 +1,59 @@
+package com.bookswap.bookswap.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Creates the PostgreSQL partial unique index that allows at most one PENDING request per
+ * (book, requester). JPA can't declare a partial index and the schema is managed by Hibernate's
+ * ddl-auto, so it is created here once the tables exist.
+ *
+ * Databases from before the index can already hold duplicate PENDING rows (the old pre-read check was
+ * racy), and then the index can't be created. That is logged and startup continues; the duplicates are
+ * resolved once with {@link com.bookswap.bookswap.service.DuplicatePendingRequestCleanup}, which
+ * retries the index afterwards.
+ */
+@Component
+@Slf4j
+public class PendingRequestIndexInitializer {
+
+    public static final String INDEX_NAME = "uq_swap_requests_pending";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depends on the EntityManagerFactory so Hibernate has created or updated the tables first
+    public PendingRequestIndexInitializer(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public void createIndex() throws SQLException {
+        String database;
+        try (Connection connection = dataSource.getConnection()) {
+            database = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        }
+        if (!database.contains("postgresql")) {
+            log.warn("No pending-request unique index for database '{}'; duplicate pending requests are not prevented", database);
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_NAME +
+                    " ON swap_requests (book_id, requester_id) WHERE status = 'PENDING'");
+        } catch (DataAccessException e) {
+            log.error("Could not create {}; duplicate pending requests are not prevented until it exists. " +
+                    "Start once with swap.maintenance.cancel-duplicate-pending-requests=true to resolve " +
+                    "the duplicate PENDING (book_id, requester_id) rows.", INDEX_NAME, e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.bookswap.bookswap.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Extra guard rails for spring.threads.virtual.enabled=true (Java 21+ runtime). Spring Boot then
+ * serves Tomcat requests, @Async and @Scheduled work on virtual threads; the number of concurrent
+ * requests is no longer bounded by the Tomcat pool, so the JDBC pool gets an explicit limit.
+ * Outbound geocoding is limited in GeocodingService in both modes.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(
+            @Value("${datasource.max-concurrent-connections:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+            @Value("${datasource.acquire-timeout-ms:5000}") long acquireTimeoutMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource(dataSource, maxConcurrent, acquireTimeoutMillis);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -2,7 +2,11 @@ package com.bookswap.bookswap.controller;
 
 import com.bookswap.bookswap.dto.BookRequestDTO;
 import com.bookswap.bookswap.dto.BookResponseDTO;
+import com.bookswap.bookswap.dto.CursorPage;
+import com.bookswap.bookswap.dto.ExploreResponseDTO;
+import com.bookswap.bookswap.enums.BookCondition;
 import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.service.BookFacetIndex;
 import com.bookswap.bookswap.service.BookService;
 
 import lombok.RequiredArgsConstructor;
@@ -12,7 +16,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/books")
@@ -32,8 +36,11 @@ public class BookController {
     }
 
     @GetMapping("/my-books")
-    public ResponseEntity<List<BookResponseDTO>> getMyBooks(@AuthenticationPrincipal User currentUser) {
-        List<BookResponseDTO> books = bookService.getBooksForUser(currentUser);
+    public ResponseEntity<CursorPage<BookResponseDTO>> getMyBooks(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<BookResponseDTO> books = bookService.getBooksForUser(currentUser, cursor, limit);
         return ResponseEntity.ok(books);
     }
 
@@ -58,8 +65,30 @@ public class BookController {
     }
 
     @GetMapping("/explore")
-    public ResponseEntity<List<BookResponseDTO>> getExploreBooks(@AuthenticationPrincipal User currentUser) {
-        List<BookResponseDTO> books = bookService.getExploreBooks(currentUser);
+    public ResponseEntity<ExploreResponseDTO> getExploreBooks(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Set<String> genre,
+            @RequestParam(required = false) Set<String> language,
+            @RequestParam(required = false) Set<BookCondition> condition,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        // radiusKm is optional; the center defaults to the user's saved location.
+        // Facet parameters may be repeated, e.g. ?genre=Fiction&genre=Fantasy&condition=LIKE_NEW
+        BookFacetIndex.Filter filter = new BookFacetIndex.Filter(genre, language, condition);
+        ExploreResponseDTO books = bookService.getExploreBooks(currentUser, radiusKm, lat, lng, filter, cursor, limit);
         return ResponseEntity.ok(books);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<BookResponseDTO>> searchBooks(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam("q") String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<BookResponseDTO> books = bookService.searchBooks(currentUser, query, cursor, limit);
+        return ResponseEntity.ok(books);
+    }
+}
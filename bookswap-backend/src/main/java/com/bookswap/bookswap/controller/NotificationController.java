@@ -1,14 +1,17 @@
 package com.bookswap.bookswap.controller;
 
+import com.bookswap.bookswap.dto.CursorPage;
 import com.bookswap.bookswap.dto.NotificationResponseDTO;
 import com.bookswap.bookswap.model.User;
 import com.bookswap.bookswap.service.NotificationService;
+import com.bookswap.bookswap.service.NotificationStreamRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,12 +20,22 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationStreamRegistry notificationStreamRegistry;
 
-    // Get all notifications for current user
+    // Server-Sent Events: "notification" for each new notification, "unread-count" whenever it changes,
+    // "resync" if the client fell behind and should refetch
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@AuthenticationPrincipal User currentUser) {
+        return notificationStreamRegistry.subscribe(currentUser);
+    }
+
+    // Get one page of notifications for current user, newest first
     @GetMapping
-    public ResponseEntity<List<NotificationResponseDTO>> getNotifications(@AuthenticationPrincipal User currentUser) {
-        List<NotificationResponseDTO> notifications = notificationService.getNotificationsForUser(currentUser);
-        return ResponseEntity.ok(notifications);
+    public ResponseEntity<CursorPage<NotificationResponseDTO>> getNotifications(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(notificationService.getNotificationsForUser(currentUser, cursor, limit));
     }
 
     // Get unread count
@@ -43,8 +56,8 @@ public class NotificationController {
 
     // Mark all notifications as read
     @PutMapping("/mark-all-read")
-    public ResponseEntity<Map<String, String>> markAllAsRead(@AuthenticationPrincipal User currentUser) {
-        notificationService.markAllAsRead(currentUser);
-        return ResponseEntity.ok(Map.of("message", "All notifications marked as read"));
+    public ResponseEntity<Map<String, Object>> markAllAsRead(@AuthenticationPrincipal User currentUser) {
+        int updated = notificationService.markAllAsRead(currentUser);
+        return ResponseEntity.ok(Map.of("message", "All notifications marked as read", "updated", updated));
     }
 }
@@ -1,8 +1,13 @@
 package com.bookswap.bookswap.controller;
 
+import com.bookswap.bookswap.dto.BulkSwapRequestResultDTO;
+import com.bookswap.bookswap.dto.BulkSwapRequestUpdateDTO;
+import com.bookswap.bookswap.dto.CursorPage;
+import com.bookswap.bookswap.dto.SwapMatchDTO;
 import com.bookswap.bookswap.dto.SwapRequestResponseDTO;
 import com.bookswap.bookswap.dto.SwapRequestUpdateDTO;
 import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.service.SwapMatchService;
 import com.bookswap.bookswap.service.SwapRequestService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +24,7 @@ import java.util.List;
 public class SwapRequestController {
 
     private final SwapRequestService swapRequestService;
+    private final SwapMatchService swapMatchService;
 
     // Endpoint for a user to request a book
     @PostMapping("/book/{bookId}")
@@ -39,15 +45,35 @@ public class SwapRequestController {
         return ResponseEntity.ok(response);
     }
 
+    // Endpoint for a book owner to accept or decline several requests at once; one result per item
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkSwapRequestResultDTO>> updateSwapRequestStatuses(
+            @Valid @RequestBody BulkSwapRequestUpdateDTO updateDTO,
+            @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(swapRequestService.updateSwapRequestStatuses(updateDTO.getItems(), currentUser));
+    }
+
+    // Endpoint to get suggested swap rings (2-4 users) that YOUR pending requests are part of
+    @GetMapping("/matches")
+    public ResponseEntity<List<SwapMatchDTO>> getMySuggestedMatches(@AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(swapMatchService.getSuggestedMatches(currentUser));
+    }
+
     // Endpoint to get all requests YOU have made
     @GetMapping("/outgoing")
-    public ResponseEntity<List<SwapRequestResponseDTO>> getMyOutgoingRequests(@AuthenticationPrincipal User currentUser) {
-        return ResponseEntity.ok(swapRequestService.getOutgoingRequests(currentUser));
+    public ResponseEntity<CursorPage<SwapRequestResponseDTO>> getMyOutgoingRequests(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(swapRequestService.getOutgoingRequests(currentUser, cursor, limit));
     }
 
     // Endpoint to get all requests for YOUR books
     @GetMapping("/incoming")
-    public ResponseEntity<List<SwapRequestResponseDTO>> getMyIncomingRequests(@AuthenticationPrincipal User currentUser) {
-        return ResponseEntity.ok(swapRequestService.getIncomingRequests(currentUser));
+    public ResponseEntity<CursorPage<SwapRequestResponseDTO>> getMyIncomingRequests(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(swapRequestService.getIncomingRequests(currentUser, cursor, limit));
     }
 }
\ No newline at end of file
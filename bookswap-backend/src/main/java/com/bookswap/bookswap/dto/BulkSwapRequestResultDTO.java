@@ -0,0 +1,15 @@
+package com.bookswap.bookswap.dto;
+
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import lombok.Builder;
+import lombok.Data;
+
+// Outcome of one item of a bulk update, in request order
+@Data
+@Builder
+public class BulkSwapRequestResultDTO {
+    private Long requestId;
+    private SwapRequestStatus status; // The request's status after the batch, null if it wasn't found
+    private boolean applied; // Whether the item's own change was applied
+    private String error; // Why the item was skipped (or what happened instead), null when applied
+}
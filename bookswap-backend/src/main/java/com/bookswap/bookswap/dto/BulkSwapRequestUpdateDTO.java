@@ -0,0 +1,26 @@
+package com.bookswap.bookswap.dto;
+
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkSwapRequestUpdateDTO {
+    @NotEmpty
+    @Size(max = 100)
+    private List<@Valid @NotNull Item> items;
+
+    @Data
+    public static class Item {
+        @NotNull
+        private Long requestId;
+
+        @NotNull
+        private SwapRequestStatus status;
+    }
+}
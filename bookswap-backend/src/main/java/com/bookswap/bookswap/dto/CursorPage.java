@@ -0,0 +1,30 @@
+package com.bookswap.bookswap.dto;
+
+import com.bookswap.bookswap.util.PageCursor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+public class CursorPage<T> {
+    private List<T> items;
+    private String next; // Opaque token for the following page, null on the last page
+
+    /**
+     * Builds a page from rows fetched with {@code limit}. A full page means there may be more rows,
+     * so the key of the last row becomes the next cursor.
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int limit, Function<E, PageCursor> keyOf, Function<E, T> mapper) {
+        String next = null;
+        if (!rows.isEmpty() && rows.size() >= limit) {
+            next = keyOf.apply(rows.get(rows.size() - 1)).encode();
+        }
+        return CursorPage.<T>builder()
+                .items(rows.stream().map(mapper).toList())
+                .next(next)
+                .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.bookswap.bookswap.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+public class ExploreResponseDTO {
+    private List<BookResponseDTO> items;
+    private String next; // Opaque token for the following page, null on the last page
+    private Map<String, Map<String, Long>> facets; // facet -> value -> number of matching books
+}
@@ -13,7 +13,9 @@ public class NotificationResponseDTO {
     private String message;
     private Long relatedSwapRequestId;
     private Long relatedBookId;
+    private Integer aggregateCount; // Number of merged events, e.g. 5 for "5 people requested ..."
     private Boolean isRead;
     private LocalDateTime createdAt;
+    private LocalDateTime lastEventAt; // Latest merged event; clients order and time-stamp by this
     private LocalDateTime readAt;
 }
@@ -0,0 +1,27 @@
+package com.bookswap.bookswap.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// A suggested swap ring: each hop is a pending request, and the last hop's owner is the first hop's requester
+@Data
+@Builder
+public class SwapMatchDTO {
+    private int size; // Number of users (and books) in the ring
+    private List<Hop> hops;
+
+    @Data
+    @Builder
+    public static class Hop {
+        private Long requestId;
+        private Long bookId;
+        private String bookTitle;
+        private String bookPhotoUrl;
+        private Long requesterId;
+        private String requesterName;
+        private Long ownerId;
+        private String ownerName;
+    }
+}
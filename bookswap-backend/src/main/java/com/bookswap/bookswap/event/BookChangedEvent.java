@@ -0,0 +1,19 @@
+package com.bookswap.bookswap.event;
+
+import com.bookswap.bookswap.model.Book;
+
+/**
+ * Published whenever a book is created, edited, deleted or changes availability
+ * (e.g. when a swap request for it is accepted). In-memory indexes listen for it
+ * after the surrounding transaction commits.
+ */
+public record BookChangedEvent(Book book, boolean deleted) {
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(book, false);
+    }
+
+    public static BookChangedEvent deleted(Book book) {
+        return new BookChangedEvent(book, true);
+    }
+}
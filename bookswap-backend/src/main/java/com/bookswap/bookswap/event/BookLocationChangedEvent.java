@@ -0,0 +1,8 @@
+package com.bookswap.bookswap.event;
+
+/**
+ * Published when a book is created or its coordinates change, so its location name
+ * can be resolved off the request path once the write has committed.
+ */
+public record BookLocationChangedEvent(Long bookId, double latitude, double longitude) {
+}
@@ -0,0 +1,8 @@
+package com.bookswap.bookswap.event;
+
+import com.bookswap.bookswap.dto.NotificationResponseDTO;
+
+// Published for every new notification, and for an unread one that absorbed another event (merged);
+// pushed to the recipient's open streams after commit
+public record NotificationCreatedEvent(Long userId, NotificationResponseDTO notification, boolean merged) {
+}
@@ -0,0 +1,5 @@
+package com.bookswap.bookswap.event;
+
+// Published when some of a user's notifications were marked read; markedRead is how many were unread before
+public record NotificationsReadEvent(Long userId, long markedRead) {
+}
@@ -0,0 +1,32 @@
+package com.bookswap.bookswap.event;
+
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.model.SwapRequest;
+
+/**
+ * Published inside the swap transaction whenever a request is created or changes status.
+ * Carries plain values only, so listeners never touch lazy associations.
+ */
+public record SwapRequestChangedEvent(Long swapRequestId, SwapRequestStatus status,
+                                      Long bookId, String bookTitle,
+                                      Long requesterId, String requesterName,
+                                      Long ownerId, String ownerName) {
+
+    public static SwapRequestChangedEvent of(SwapRequest request) {
+        return of(request, request.getStatus());
+    }
+
+    // For requests whose status was changed by a bulk update, so the loaded entity still has the old one
+    public static SwapRequestChangedEvent of(SwapRequest request, SwapRequestStatus status) {
+        return new SwapRequestChangedEvent(
+                request.getId(),
+                status,
+                request.getBook().getId(),
+                request.getBook().getTitle(),
+                request.getRequester().getId(),
+                request.getRequester().getName(),
+                request.getOwner().getId(),
+                request.getOwner().getName()
+        );
+    }
+}
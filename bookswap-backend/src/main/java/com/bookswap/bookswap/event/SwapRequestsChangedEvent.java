@@ -0,0 +1,7 @@
+package com.bookswap.bookswap.event;
+
+import java.util.List;
+
+// Several swap changes made by one transaction (bulk actions, sibling declines), delivered to the outbox as one batch
+public record SwapRequestsChangedEvent(List<SwapRequestChangedEvent> changes) {
+}
@@ -0,0 +1,5 @@
+package com.bookswap.bookswap.event;
+
+// Published when reconciliation corrected a drifted in-memory unread count
+public record UnreadCountChangedEvent(Long userId, long count) {
+}
@@ -17,7 +17,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_status_created", columnList = "status, created_at, id"),
+        @Index(name = "idx_books_owner_created", columnList = "owner_id, created_at, id")
+})
 public class Book {
 
     @Id
@@ -54,6 +57,13 @@ public class Book {
     @Column(nullable = false)
     private Double longitude;
 
+    // City name resolved from the coordinates after each write; null until resolved
+    private String locationName;
+
+    // Last failed lookup of locationName, so the backfill retries it later instead of stalling on it
+    @Column(name = "location_attempted_at")
+    private LocalDateTime locationAttemptedAt;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private BookStatus status;
@@ -67,4 +77,9 @@ public class Book {
 
     @UpdateTimestamp
     private LocalDateTime updatedAt;
+
+    // Optimistic locking: concurrent accepts of requests for the same book conflict on this column
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
 }
\ No newline at end of file
@@ -14,7 +14,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user_read", columnList = "user_id, is_read"),
+        @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_notifications_is_read_read_at", columnList = "is_read, read_at")
+})
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,11 +40,21 @@ public class Notification {
     @Column(name = "related_book_id")
     private Long relatedBookId;
 
+    // How many events were merged into this row; null on rows written before coalescing existed
+    @Column(name = "aggregate_count")
+    @Builder.Default
+    private Integer aggregateCount = 1;
+
     @Column(nullable = false)
     private Boolean isRead = false;
 
     @CreationTimestamp
     private LocalDateTime createdAt;
 
+    // When the latest event was merged in. The coalesce window runs on this; createdAt never changes,
+    // so the row keeps its place in the (created_at, id) history pages. Null on rows written before it existed.
+    @Column(name = "last_event_at")
+    private LocalDateTime lastEventAt;
+
     private LocalDateTime readAt;
 }
@@ -0,0 +1,52 @@
+package com.bookswap.bookswap.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A read notification moved out of the hot notifications table by NotificationRetentionJob.
+// Keeps the original id; the recipient is a plain column so archived rows never block deleting a user.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "notifications_archive", indexes = {
+        @Index(name = "idx_notifications_archive_user_created", columnList = "user_id, created_at, id")
+})
+public class NotificationArchive {
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false, length = 500)
+    private String message;
+
+    @Column(name = "related_swap_request_id")
+    private Long relatedSwapRequestId;
+
+    @Column(name = "related_book_id")
+    private Long relatedBookId;
+
+    @Column(name = "aggregate_count")
+    private Integer aggregateCount;
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_event_at")
+    private LocalDateTime lastEventAt;
+
+    private LocalDateTime readAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
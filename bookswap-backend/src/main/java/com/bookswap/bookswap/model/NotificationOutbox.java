@@ -0,0 +1,55 @@
+package com.bookswap.bookswap.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// A notification written in the same transaction as the swap change that caused it,
+// and turned into a real Notification by NotificationOutboxRelay after commit
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_next_attempt", columnList = "next_attempt_at, id")
+})
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recipient_id", nullable = false)
+    private Long recipientId;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false, length = 500)
+    private String message;
+
+    @Column(name = "related_swap_request_id")
+    private Long relatedSwapRequestId;
+
+    @Column(name = "related_book_id")
+    private Long relatedBookId;
+
+    // Kept so several requests for the same book can be merged into one message
+    @Column(name = "related_book_title")
+    private String relatedBookTitle;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
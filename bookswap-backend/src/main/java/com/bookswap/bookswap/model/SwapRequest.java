@@ -16,7 +16,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "swap_requests")
+@Table(name = "swap_requests", indexes = {
+        @Index(name = "idx_swap_requests_owner_created", columnList = "owner_id, created_at, id"),
+        @Index(name = "idx_swap_requests_requester_created", columnList = "requester_id, created_at, id")
+})
 public class SwapRequest {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -43,4 +46,9 @@ public class SwapRequest {
 
     @UpdateTimestamp
     private LocalDateTime updatedAt;
+
+    // Optimistic locking: a request changed by two transactions at once fails the second
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
 }
@@ -1,10 +1,13 @@
 package com.bookswap.bookswap.model;
 
+import com.bookswap.bookswap.service.UserPrincipalCacheListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -17,6 +20,7 @@ import java.util.Collections; // Or List.of()
 @AllArgsConstructor
 @Entity
 @Table(name = "users")
+@EntityListeners(UserPrincipalCacheListener.class)
 // Implement the UserDetails interface
 public class User implements UserDetails {
     @Id
@@ -36,6 +40,12 @@ public class User implements UserDetails {
     private Double longitude;
     private String profilePictureUrl;
 
+    // Email as last read from or written to the database, so a changed email's old cache key can be evicted
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String persistedEmail;
+
     // --- UserDetails Methods ---
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
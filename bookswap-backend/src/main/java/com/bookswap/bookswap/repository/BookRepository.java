@@ -3,19 +3,68 @@ package com.bookswap.bookswap.repository;
 import com.bookswap.bookswap.enums.BookStatus;
 import com.bookswap.bookswap.model.Book;
 import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.projection.BookFacetView;
+import com.bookswap.bookswap.repository.projection.BookLocationView;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
-    // Finds all books owned by a specific user
-    List<Book> findByOwnerOrderByIdDesc(User owner);
+    // One page of a user's own books, newest first, strictly after the (createdAt, id) cursor
+    @EntityGraph(attributePaths = "owner")
+    @Query("select b from Book b where b.owner = :owner and (b.createdAt, b.id) < (:createdAt, :id) " +
+            "order by b.createdAt desc, b.id desc")
+    List<Book> findPageByOwner(User owner, LocalDateTime createdAt, Long id, Limit limit);
 
-    // "Find all books where the Owner is not the given user AND the Status is the given status,
-    // and order them by their creation date in descending order."
-    List<Book> findAllByOwnerNotAndStatusOrderByCreatedAtDesc(User owner, BookStatus status);
+    // One page of books with the given status that are NOT owned by the given user, newest first
+    @EntityGraph(attributePaths = "owner")
+    @Query("select b from Book b where b.owner <> :owner and b.status = :status " +
+            "and (b.createdAt, b.id) < (:createdAt, :id) order by b.createdAt desc, b.id desc")
+    List<Book> findExplorePage(User owner, BookStatus status, LocalDateTime createdAt, Long id, Limit limit);
 
-}
\ No newline at end of file
+    // Loads the given books together with their owners (used for index-driven listings)
+    @EntityGraph(attributePaths = "owner")
+    List<Book> findByIdIn(Collection<Long> ids);
+
+    // Walks the whole catalogue in id order, one batch at a time (used to build the search index)
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Only the columns the geo index needs, so a rebuild doesn't hydrate full entities
+    @Query("select b.id as id, b.owner.id as ownerId, b.latitude as latitude, b.longitude as longitude, " +
+            "b.createdAt as createdAt from Book b where b.status = :status")
+    List<BookLocationView> findLocationsByStatus(BookStatus status);
+
+    // Only the columns the facet index needs
+    @Query("select b.id as id, b.owner.id as ownerId, b.genre as genre, b.language as language, " +
+            "b.bookCondition as bookCondition, b.createdAt as createdAt from Book b where b.status = :status")
+    List<BookFacetView> findFacetsByStatus(BookStatus status);
+
+    // Books whose location name hasn't been resolved yet, for the background backfill. Books whose lookup
+    // failed since retryBefore are skipped, so a run of permanent failures can't hold back the rest.
+    @Query("select b from Book b where b.locationName is null " +
+            "and (b.locationAttemptedAt is null or b.locationAttemptedAt < :retryBefore) order by b.id asc")
+    List<Book> findLocationNamesToResolve(LocalDateTime retryBefore, Limit limit);
+
+    // Records a failed location lookup
+    @Modifying
+    @Transactional
+    @Query("update Book b set b.locationAttemptedAt = :attemptedAt where b.id = :id")
+    int markLocationAttempted(Long id, LocalDateTime attemptedAt);
+
+    // Stores a resolved location name, but only if the book still has the coordinates it was resolved for
+    @Modifying
+    @Transactional
+    @Query("update Book b set b.locationName = :locationName " +
+            "where b.id = :id and b.latitude = :latitude and b.longitude = :longitude")
+    int updateLocationName(Long id, double latitude, double longitude, String locationName);
+}
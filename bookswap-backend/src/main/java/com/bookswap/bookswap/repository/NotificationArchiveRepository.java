@@ -0,0 +1,21 @@
+package com.bookswap.bookswap.repository;
+
+import com.bookswap.bookswap.model.NotificationArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface NotificationArchiveRepository extends JpaRepository<NotificationArchive, Long> {
+
+    // Copies the given notifications into the archive with one INSERT ... SELECT
+    @Modifying
+    @Query("INSERT INTO NotificationArchive (id, userId, type, message, relatedSwapRequestId, relatedBookId, aggregateCount, createdAt, lastEventAt, readAt, archivedAt) " +
+            "SELECT n.id, n.user.id, n.type, n.message, n.relatedSwapRequestId, n.relatedBookId, n.aggregateCount, n.createdAt, n.lastEventAt, n.readAt, LOCAL DATETIME " +
+            "FROM Notification n WHERE n.id IN :ids")
+    int copyFromNotifications(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,39 @@
+package com.bookswap.bookswap.repository;
+
+import com.bookswap.bookswap.model.NotificationOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    // Oldest due entries first. Rows locked by another relay instance are skipped (-2 = SKIP LOCKED),
+    // so several app instances can drain the outbox without delivering anything twice.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.nextAttemptAt <= :now ORDER BY o.id ASC")
+    List<NotificationOutbox> lockDueEntries(@Param("now") LocalDateTime now, Limit limit);
+
+    // Re-claims one entry for delivery on its own; empty if another instance holds it, or it was
+    // delivered or rescheduled since it was listed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.id = :id AND o.nextAttemptAt <= :now")
+    Optional<NotificationOutbox> lockDueEntry(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.attempts = o.attempts + 1, o.nextAttemptAt = :nextAttemptAt WHERE o.id = :id")
+    int recordFailedAttempt(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+}
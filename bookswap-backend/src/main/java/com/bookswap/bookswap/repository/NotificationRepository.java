@@ -1,21 +1,80 @@
 package com.bookswap.bookswap.repository;
 
 import com.bookswap.bookswap.model.Notification;
-import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.projection.UserUnreadCountView;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
 
-    // Find all notifications for a user, ordered by newest first
-    List<Notification> findByUserOrderByCreatedAtDesc(User user);
+    // One page of a user's notifications, newest first, as a range scan over idx_notifications_user_created
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND (n.createdAt, n.id) < (:createdAt, :id) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findPageByUserId(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id, Limit limit);
 
-    // Find unread notifications for a user
-    List<Notification> findByUserAndIsReadFalse(User user);
+    // Unread notifications that new events for the same recipient, type and book can be merged into
+    @Query("SELECT n FROM Notification n WHERE n.user.id IN :userIds AND n.isRead = false AND n.type IN :types " +
+            "AND n.relatedBookId IN :bookIds AND COALESCE(n.lastEventAt, n.createdAt) >= :since ORDER BY n.createdAt ASC, n.id ASC")
+    List<Notification> findCoalesceTargets(@Param("userIds") Collection<Long> userIds, @Param("types") Collection<String> types,
+                                           @Param("bookIds") Collection<Long> bookIds, @Param("since") LocalDateTime since);
 
-    // Count unread notifications for a user
-    Long countByUserAndIsReadFalse(User user);
+    // Merges more events into a notification while it is still unread; the count and message are computed
+    // from the row's current count. Returns 0 once it has been read, so a concurrent mark-as-read is never undone.
+    @Modifying
+    @Query("UPDATE Notification n SET n.aggregateCount = COALESCE(n.aggregateCount, 1) + :added, " +
+            "n.message = CONCAT(CAST(COALESCE(n.aggregateCount, 1) + :added AS String), :messageSuffix), " +
+            "n.relatedSwapRequestId = :swapRequestId, n.lastEventAt = :now WHERE n.id = :id AND n.isRead = false")
+    int mergeInto(@Param("id") Long id, @Param("added") int added, @Param("messageSuffix") String messageSuffix,
+                  @Param("swapRequestId") Long swapRequestId, @Param("now") LocalDateTime now);
+
+    // Oldest expired read notifications first. Rows locked by another instance's retention run are
+    // skipped (-2 = SKIP LOCKED), so runs on several instances never move the same row twice.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT n FROM Notification n WHERE n.isRead = true AND n.readAt < :cutoff ORDER BY n.readAt ASC, n.id ASC")
+    List<Notification> lockReadBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    // Rows marked read before readAt existed; backfilled so lockReadBefore can stay a plain index range
+    @Query("SELECT n.id FROM Notification n WHERE n.isRead = true AND n.readAt IS NULL ORDER BY n.id ASC")
+    List<Long> findReadWithoutReadAt(Limit limit);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.readAt = n.createdAt WHERE n.id IN :ids AND n.readAt IS NULL")
+    int backfillReadAt(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    long countByUserIdAndIsReadFalse(Long userId);
+
+    // Unread counts for a batch of users in one grouped query; users with none are absent
+    @Query("select n.user.id as userId, count(n) as count from Notification n " +
+            "where n.user.id in :userIds and n.isRead = false group by n.user.id")
+    List<UserUnreadCountView> countUnreadByUserIds(Collection<Long> userIds);
+
+    // Marks one of the user's notifications read in a single statement; 0 if it is missing, not theirs or already read
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt " +
+            "WHERE n.id = :id AND n.user.id = :userId AND n.isRead = false")
+    int markReadByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
+
+    // Marks all of the user's unread notifications read in one statement over idx_notifications_user_read
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.user.id = :userId AND n.isRead = false")
+    int markAllReadByUserId(@Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
 }
@@ -4,25 +4,90 @@ package com.bookswap.bookswap.repository;
 import com.bookswap.bookswap.enums.SwapRequestStatus;
 import com.bookswap.bookswap.model.Book;
 import com.bookswap.bookswap.model.SwapRequest;
-import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.projection.BookRequestCountView;
+import com.bookswap.bookswap.repository.projection.SwapMatchHopView;
+import com.bookswap.bookswap.repository.projection.SwapRequestEdgeView;
+import com.bookswap.bookswap.repository.projection.SwapRequestListingView;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface SwapRequestRepository extends JpaRepository<SwapRequest, Long> {
 
-    // Find all requests made BY a specific user (their outgoing requests)
-    List<SwapRequest> findByRequester(User requester);
+    // Columns of a listing row; the book's pending count is a correlated subquery, so a page is one statement
+    String LISTING_SELECT = "select r.id as id, r.status as status, r.createdAt as createdAt, r.updatedAt as updatedAt, " +
+            "req.id as requesterId, req.name as requesterName, req.latitude as requesterLatitude, req.longitude as requesterLongitude, " +
+            "o.id as ownerId, o.name as ownerName, " +
+            "b.id as bookId, b.title as bookTitle, b.author as bookAuthor, b.genre as bookGenre, b.language as bookLanguage, " +
+            "b.bookCondition as bookCondition, b.description as bookDescription, b.photoUrl as bookPhotoUrl, " +
+            "b.exchangePreference as bookExchangePreference, b.latitude as bookLatitude, b.longitude as bookLongitude, " +
+            "b.status as bookStatus, b.createdAt as bookCreatedAt, b.locationName as bookLocationName, " +
+            "(select count(p) from SwapRequest p where p.book = b " +
+            "and p.status = com.bookswap.bookswap.enums.SwapRequestStatus.PENDING) as bookPendingCount " +
+            "from SwapRequest r join r.book b join r.requester req join r.owner o ";
 
-    // Find all requests made FOR a specific user's books (their incoming requests)
-    List<SwapRequest> findByOwner(User owner);
+    // One page of requests made BY a specific user (their outgoing requests), newest first
+    @Query(LISTING_SELECT + "where r.requester.id = :requesterId and (r.createdAt, r.id) < (:createdAt, :id) " +
+            "order by r.createdAt desc, r.id desc")
+    List<SwapRequestListingView> findListingPageByRequesterId(Long requesterId, LocalDateTime createdAt, Long id, Limit limit);
 
-    // Check if a specific user already has a pending request for a specific book
-    Optional<SwapRequest> findByBookAndRequesterAndStatus(Book book, User requester, SwapRequestStatus status);
+    // One page of requests made FOR a specific user's books (their incoming requests), newest first
+    @Query(LISTING_SELECT + "where r.owner.id = :ownerId and (r.createdAt, r.id) < (:createdAt, :id) " +
+            "order by r.createdAt desc, r.id desc")
+    List<SwapRequestListingView> findListingPageByOwnerId(Long ownerId, LocalDateTime createdAt, Long id, Limit limit);
+
+    // The given requests, but only those owned by ownerId: ownership is checked by the query itself
+    @EntityGraph(attributePaths = {"book", "requester", "owner"})
+    List<SwapRequest> findByIdInAndOwnerId(Collection<Long> ids, Long ownerId);
+
+    // All requests with the given status for several books, with their requesters, for notifying them
+    @EntityGraph(attributePaths = {"book", "requester"})
+    List<SwapRequest> findByBookIdInAndStatus(Collection<Long> bookIds, SwapRequestStatus status);
+
+    // The other requests with the given status for a book, with their requesters, for notifying them
+    @EntityGraph(attributePaths = {"requester"})
+    List<SwapRequest> findByBookIdAndStatusAndIdNot(Long bookId, SwapRequestStatus status, Long id);
+
+    // Requests with the given status that have a newer twin (same book and requester) in that status
+    @EntityGraph(attributePaths = {"book", "requester", "owner"})
+    @Query("select r from SwapRequest r where r.status = :status and exists (select 1 from SwapRequest newer " +
+            "where newer.book = r.book and newer.requester = r.requester and newer.status = :status and newer.id > r.id) " +
+            "order by r.id")
+    List<SwapRequest> findSupersededByStatus(@Param("status") SwapRequestStatus status);
+
+    // Moves the given requests from one status to another in one statement, bumping their versions so
+    // a concurrent change to any of them fails its optimistic check. Returns how many rows changed.
+    @Modifying
+    @Query("update SwapRequest r set r.status = :to, r.updatedAt = :now, r.version = r.version + 1 " +
+            "where r.id in :ids and r.status = :from")
+    int transitionStatus(@Param("ids") Collection<Long> ids, @Param("from") SwapRequestStatus from,
+                         @Param("to") SwapRequestStatus to, @Param("now") LocalDateTime now);
+
+    // Only the ids the swap match index needs, so a rebuild doesn't hydrate full entities
+    @Query("select r.id as id, r.book.id as bookId, r.requester.id as requesterId, r.owner.id as ownerId " +
+            "from SwapRequest r where r.status = :status")
+    List<SwapRequestEdgeView> findEdgesByStatus(SwapRequestStatus status);
+
+    // The requests making up suggested swap rings, re-read so stale index entries can be dropped
+    @Query("select r.id as id, r.status as status, b.id as bookId, b.title as bookTitle, b.photoUrl as bookPhotoUrl, " +
+            "b.status as bookStatus, rq.id as requesterId, rq.name as requesterName, o.id as ownerId, o.name as ownerName " +
+            "from SwapRequest r join r.book b join r.requester rq join r.owner o where r.id in :ids")
+    List<SwapMatchHopView> findMatchHopsByIdIn(Collection<Long> ids);
 
     // Count pending requests for a specific book
     Long countByBookAndStatus(Book book, SwapRequestStatus status);
+
+    // Count requests with the given status for a whole page of books in one grouped query
+    @Query("select r.book.id as bookId, count(r) as count from SwapRequest r " +
+            "where r.book.id in :bookIds and r.status = :status group by r.book.id")
+    List<BookRequestCountView> countByBookIdsAndStatus(Collection<Long> bookIds, SwapRequestStatus status);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.bookswap.bookswap.repository.projection;
+
+import com.bookswap.bookswap.enums.BookCondition;
+
+import java.time.LocalDateTime;
+
+// The facet columns of a book, used to (re)build the in-memory facet index without loading entities
+public interface BookFacetView {
+    Long getId();
+    Long getOwnerId();
+    String getGenre();
+    String getLanguage();
+    BookCondition getBookCondition();
+    LocalDateTime getCreatedAt();
+}
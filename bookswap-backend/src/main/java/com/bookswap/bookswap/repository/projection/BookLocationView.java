@@ -0,0 +1,12 @@
+package com.bookswap.bookswap.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Lightweight view of a book used to (re)build the in-memory geo index without loading entities
+public interface BookLocationView {
+    Long getId();
+    Long getOwnerId();
+    Double getLatitude();
+    Double getLongitude();
+    LocalDateTime getCreatedAt();
+}
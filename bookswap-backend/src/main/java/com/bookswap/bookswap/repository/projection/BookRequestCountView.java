@@ -0,0 +1,7 @@
+package com.bookswap.bookswap.repository.projection;
+
+// One row of a grouped "requests per book" count
+public interface BookRequestCountView {
+    Long getBookId();
+    Long getCount();
+}
@@ -0,0 +1,18 @@
+package com.bookswap.bookswap.repository.projection;
+
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+
+// One request of a suggested swap ring, with just what the response shows and the state to re-check
+public interface SwapMatchHopView {
+    Long getId();
+    SwapRequestStatus getStatus();
+    Long getBookId();
+    String getBookTitle();
+    String getBookPhotoUrl();
+    BookStatus getBookStatus();
+    Long getRequesterId();
+    String getRequesterName();
+    Long getOwnerId();
+    String getOwnerName();
+}
@@ -0,0 +1,9 @@
+package com.bookswap.bookswap.repository.projection;
+
+// A pending request as an edge requester -> owner, used to (re)build the in-memory swap match index
+public interface SwapRequestEdgeView {
+    Long getId();
+    Long getBookId();
+    Long getRequesterId();
+    Long getOwnerId();
+}
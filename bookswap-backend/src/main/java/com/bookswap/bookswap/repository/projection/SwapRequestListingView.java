@@ -0,0 +1,39 @@
+package com.bookswap.bookswap.repository.projection;
+
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+
+import java.time.LocalDateTime;
+
+// One row of an incoming/outgoing swap request listing: the request, both parties, the book and
+// the book's pending-request count, all read by a single query
+public interface SwapRequestListingView {
+    Long getId();
+    SwapRequestStatus getStatus();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+
+    Long getRequesterId();
+    String getRequesterName();
+    Double getRequesterLatitude();
+    Double getRequesterLongitude();
+    Long getOwnerId();
+    String getOwnerName();
+
+    Long getBookId();
+    String getBookTitle();
+    String getBookAuthor();
+    String getBookGenre();
+    String getBookLanguage();
+    BookCondition getBookCondition();
+    String getBookDescription();
+    String getBookPhotoUrl();
+    String getBookExchangePreference();
+    Double getBookLatitude();
+    Double getBookLongitude();
+    BookStatus getBookStatus();
+    LocalDateTime getBookCreatedAt();
+    String getBookLocationName();
+    Long getBookPendingCount();
+}
@@ -0,0 +1,7 @@
+package com.bookswap.bookswap.repository.projection;
+
+// One row of a grouped "unread notifications per user" count
+public interface UserUnreadCountView {
+    Long getUserId();
+    Long getCount();
+}
@@ -0,0 +1,330 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.event.BookChangedEvent;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.repository.projection.BookFacetView;
+import com.bookswap.bookswap.util.PageCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap index over AVAILABLE books for the genre, language and condition facets.
+ * Each book occupies a slot; every facet value keeps a {@link BitSet} of the slots that carry it,
+ * so filtering is a few bitmap intersections and facet counts are cardinalities.
+ */
+@Component
+@Slf4j
+public class BookFacetIndex {
+
+    public static final String GENRE = "genre";
+    public static final String LANGUAGE = "language";
+    public static final String CONDITION = "condition";
+
+    /**
+     * Selected facet values. Values within one facet are OR-ed, facets are AND-ed; an empty set
+     * means the facet is not filtered.
+     */
+    public record Filter(Set<String> genres, Set<String> languages, Set<BookCondition> conditions) {
+
+        public Filter {
+            genres = genres == null ? Set.of() : Set.copyOf(genres);
+            languages = languages == null ? Set.of() : Set.copyOf(languages);
+            conditions = conditions == null ? Set.of() : Set.copyOf(conditions);
+        }
+
+        public static Filter none() {
+            return new Filter(Set.of(), Set.of(), Set.of());
+        }
+
+        public boolean isEmpty() {
+            return genres.isEmpty() && languages.isEmpty() && conditions.isEmpty();
+        }
+    }
+
+    // An index-ordered candidate for a listing page
+    public record Candidate(Long bookId, LocalDateTime createdAt) {
+    }
+
+    private final BookRepository bookRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, BitSet> genreBits = new HashMap<>();
+    private final Map<String, BitSet> languageBits = new HashMap<>();
+    private final Map<BookCondition, BitSet> conditionBits = new EnumMap<>(BookCondition.class);
+    private final BitSet liveSlots = new BitSet();
+
+    private final Map<Long, Integer> slotByBookId = new HashMap<>();
+    private final Map<Long, Set<Integer>> slotsByOwnerId = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private long[] slotBookIds = new long[1024];
+    private long[] slotOwnerIds = new long[1024];
+    private LocalDateTime[] slotCreatedAt = new LocalDateTime[1024];
+    private String[] slotGenres = new String[1024];
+    private String[] slotLanguages = new String[1024];
+    private BookCondition[] slotConditions = new BookCondition[1024];
+    private int slotCount;
+
+    public BookFacetIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    // Load every AVAILABLE book once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<BookFacetView> views = bookRepository.findFacetsByStatus(BookStatus.AVAILABLE);
+        for (BookFacetView view : views) {
+            put(view.getId(), view.getOwnerId(), view.getGenre(), view.getLanguage(), view.getBookCondition(), view.getCreatedAt());
+        }
+        log.info("Facet index built with {} books", views.size());
+    }
+
+    // Keep the index in sync with committed book writes and swap acceptance
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.book();
+        if (event.deleted() || book.getStatus() != BookStatus.AVAILABLE) {
+            remove(book.getId());
+        } else {
+            put(book.getId(), book.getOwner().getId(), book.getGenre(), book.getLanguage(), book.getBookCondition(), book.getCreatedAt());
+        }
+    }
+
+    public void put(Long bookId, Long ownerId, String genre, String language, BookCondition condition, LocalDateTime createdAt) {
+        lock.writeLock().lock();
+        try {
+            clearSlot(bookId);
+            int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+            ensureCapacity(slotCount);
+            slotBookIds[slot] = bookId;
+            slotOwnerIds[slot] = ownerId;
+            slotCreatedAt[slot] = createdAt;
+            slotGenres[slot] = genre;
+            slotLanguages[slot] = language;
+            slotConditions[slot] = condition;
+            slotByBookId.put(bookId, slot);
+            slotsByOwnerId.computeIfAbsent(ownerId, id -> new HashSet<>()).add(slot);
+            liveSlots.set(slot);
+            if (genre != null) {
+                genreBits.computeIfAbsent(genre, g -> new BitSet()).set(slot);
+            }
+            if (language != null) {
+                languageBits.computeIfAbsent(language, l -> new BitSet()).set(slot);
+            }
+            if (condition != null) {
+                conditionBits.computeIfAbsent(condition, c -> new BitSet()).set(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            clearSlot(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean matches(Long bookId, Filter filter) {
+        if (filter.isEmpty()) {
+            return true;
+        }
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByBookId.get(bookId);
+            return slot != null
+                    && (filter.genres().isEmpty() || filter.genres().contains(slotGenres[slot]))
+                    && (filter.languages().isEmpty() || filter.languages().contains(slotLanguages[slot]))
+                    && (filter.conditions().isEmpty() || filter.conditions().contains(slotConditions[slot]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page of matching books not owned by {@code excludedOwnerId}, ordered by (createdAt DESC, id DESC)
+     * and strictly after {@code position}.
+     */
+    public List<Candidate> page(Filter filter, Long excludedOwnerId, PageCursor position, int limit) {
+        Comparator<Integer> newestLast = Comparator
+                .comparing((Integer slot) -> slotCreatedAt[slot])
+                .thenComparingLong(slot -> slotBookIds[slot]);
+
+        lock.readLock().lock();
+        try {
+            BitSet matching = select(filter, null);
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, newestLast);
+            for (int slot = matching.nextSetBit(0); slot >= 0; slot = matching.nextSetBit(slot + 1)) {
+                if ((excludedOwnerId != null && slotOwnerIds[slot] == excludedOwnerId) || !position.precedes(slotCreatedAt[slot], slotBookIds[slot])) {
+                    continue;
+                }
+                top.offer(slot);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Candidate> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int slot = top.poll();
+                result.add(new Candidate(slotBookIds[slot], slotCreatedAt[slot]));
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Per-facet value counts of AVAILABLE books not owned by {@code excludedOwnerId}. The count of a value
+     * applies the filters of every other facet, so it tells how many results selecting it would add.
+     * When {@code withinBookIds} is given, only those books are counted (e.g. the books within a radius).
+     */
+    public Map<String, Map<String, Long>> counts(Filter filter, Long excludedOwnerId, Collection<Long> withinBookIds) {
+        lock.readLock().lock();
+        try {
+            BitSet within = null;
+            if (withinBookIds != null) {
+                within = new BitSet(slotCount);
+                for (Long bookId : withinBookIds) {
+                    Integer slot = slotByBookId.get(bookId);
+                    if (slot != null) {
+                        within.set(slot);
+                    }
+                }
+            }
+            Set<Integer> ownSlots = slotsByOwnerId.getOrDefault(excludedOwnerId, Set.of());
+
+            Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+            counts.put(GENRE, countValues(genreBits, select(new Filter(null, filter.languages(), filter.conditions()), within), ownSlots));
+            counts.put(LANGUAGE, countValues(languageBits, select(new Filter(filter.genres(), null, filter.conditions()), within), ownSlots));
+            Map<String, Long> conditionCounts = new LinkedHashMap<>();
+            countValues(conditionBits, select(new Filter(filter.genres(), filter.languages(), null), within), ownSlots)
+                    .forEach((condition, count) -> conditionCounts.put(condition.name(), count));
+            counts.put(CONDITION, conditionCounts);
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Value -> count, largest first; the caller's own books are subtracted slot by slot
+    private static <K> Map<K, Long> countValues(Map<K, BitSet> valueBits, BitSet base, Set<Integer> ownSlots) {
+        List<Map.Entry<K, Long>> entries = new ArrayList<>();
+        valueBits.forEach((value, bits) -> {
+            BitSet matching = (BitSet) bits.clone();
+            matching.and(base);
+            long count = matching.cardinality();
+            for (Integer slot : ownSlots) {
+                if (matching.get(slot)) {
+                    count--;
+                }
+            }
+            if (count > 0) {
+                entries.add(Map.entry(value, count));
+            }
+        });
+        entries.sort(Map.Entry.<K, Long>comparingByValue().reversed());
+        Map<K, Long> result = new LinkedHashMap<>();
+        entries.forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    // Live slots matching the filter, optionally restricted to a subset
+    private BitSet select(Filter filter, BitSet within) {
+        BitSet result = (BitSet) liveSlots.clone();
+        if (within != null) {
+            result.and(within);
+        }
+        andAny(result, genreBits, filter.genres());
+        andAny(result, languageBits, filter.languages());
+        andAny(result, conditionBits, filter.conditions());
+        return result;
+    }
+
+    private static <K> void andAny(BitSet result, Map<K, BitSet> valueBits, Set<K> selected) {
+        if (selected.isEmpty()) {
+            return;
+        }
+        BitSet union = new BitSet();
+        for (K value : selected) {
+            BitSet bits = valueBits.get(value);
+            if (bits != null) {
+                union.or(bits);
+            }
+        }
+        result.and(union);
+    }
+
+    private void clearSlot(Long bookId) {
+        Integer slot = slotByBookId.remove(bookId);
+        if (slot == null) {
+            return;
+        }
+        liveSlots.clear(slot);
+        clearBit(genreBits, slotGenres[slot], slot);
+        clearBit(languageBits, slotLanguages[slot], slot);
+        clearBit(conditionBits, slotConditions[slot], slot);
+        Set<Integer> ownerSlots = slotsByOwnerId.get(slotOwnerIds[slot]);
+        if (ownerSlots != null) {
+            ownerSlots.remove(slot);
+            if (ownerSlots.isEmpty()) {
+                slotsByOwnerId.remove(slotOwnerIds[slot]);
+            }
+        }
+        slotCreatedAt[slot] = null;
+        freeSlots.push(slot);
+    }
+
+    private static <K> void clearBit(Map<K, BitSet> valueBits, K value, int slot) {
+        if (value == null) {
+            return;
+        }
+        BitSet bits = valueBits.get(value);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                valueBits.remove(value);
+            }
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > slotBookIds.length) {
+            int capacity = Math.max(size, slotBookIds.length * 2);
+            slotBookIds = Arrays.copyOf(slotBookIds, capacity);
+            slotOwnerIds = Arrays.copyOf(slotOwnerIds, capacity);
+            slotCreatedAt = Arrays.copyOf(slotCreatedAt, capacity);
+            slotGenres = Arrays.copyOf(slotGenres, capacity);
+            slotLanguages = Arrays.copyOf(slotLanguages, capacity);
+            slotConditions = Arrays.copyOf(slotConditions, capacity);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.event.BookChangedEvent;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.repository.projection.BookLocationView;
+import com.bookswap.bookswap.util.DistanceBatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory grid-cell index over AVAILABLE books, used to answer radius-bounded explore queries
+ * without scanning the whole catalogue. The world is cut into square cells of {@code cellSizeDeg}
+ * degrees; a radius query only visits the cells overlapping its bounding box.
+ *
+ * The index is a candidate filter only: callers must still re-check status and ownership against
+ * the database, so a briefly stale entry can never leak an unavailable book.
+ */
+@Component
+@Slf4j
+public class BookGeoIndex {
+
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    // Radians and cos(latitude) are computed once at insert time for the batch distance scorer
+    public record Entry(Long bookId, Long ownerId, double latitude, double longitude,
+                        LocalDateTime createdAt, long cellKey,
+                        double latitudeRad, double longitudeRad, double cosLatitude) {
+    }
+
+    private final BookRepository bookRepository;
+    private final double cellSizeDeg;
+    private final int lonCells;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public BookGeoIndex(BookRepository bookRepository,
+                        @Value("${explore.geo-index.cell-size-deg:0.05}") double cellSizeDeg) {
+        this.bookRepository = bookRepository;
+        this.cellSizeDeg = cellSizeDeg;
+        this.lonCells = (int) Math.ceil(360.0 / cellSizeDeg);
+    }
+
+    // Load every AVAILABLE book once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        entries.clear();
+        cells.clear();
+        List<BookLocationView> locations = bookRepository.findLocationsByStatus(BookStatus.AVAILABLE);
+        for (BookLocationView view : locations) {
+            put(view.getId(), view.getOwnerId(), view.getLatitude(), view.getLongitude(), view.getCreatedAt());
+        }
+        log.info("Geo index built with {} books in {} cells", entries.size(), cells.size());
+    }
+
+    // Keep the index in sync with committed book writes and swap acceptance
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.book();
+        if (event.deleted() || book.getStatus() != BookStatus.AVAILABLE) {
+            remove(book.getId());
+        } else {
+            put(book.getId(), book.getOwner().getId(), book.getLatitude(), book.getLongitude(), book.getCreatedAt());
+        }
+    }
+
+    public void put(Long bookId, Long ownerId, Double latitude, Double longitude, LocalDateTime createdAt) {
+        if (latitude == null || longitude == null) {
+            remove(bookId);
+            return;
+        }
+        double latitudeRad = Math.toRadians(latitude);
+        Entry entry = new Entry(bookId, ownerId, latitude, longitude, createdAt, cellKey(latitude, longitude),
+                latitudeRad, Math.toRadians(longitude), Math.cos(latitudeRad));
+        Entry previous = entries.put(bookId, entry);
+        if (previous != null && previous.cellKey() != entry.cellKey()) {
+            removeFromCell(previous.cellKey(), bookId);
+        }
+        cells.compute(entry.cellKey(), (key, bookIds) -> {
+            Set<Long> cell = bookIds != null ? bookIds : ConcurrentHashMap.newKeySet();
+            cell.add(bookId);
+            return cell;
+        });
+    }
+
+    public void remove(Long bookId) {
+        Entry previous = entries.remove(bookId);
+        if (previous != null) {
+            removeFromCell(previous.cellKey(), bookId);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds indexed books within {@code radiusKm} of the given center, excluding those owned by
+     * {@code excludedOwnerId}. Results are unordered.
+     */
+    public List<Entry> findWithin(double centerLat, double centerLng, double radiusKm, Long excludedOwnerId) {
+        double latDelta = radiusKm / KM_PER_DEGREE_LAT;
+        double cosLat = Math.cos(Math.toRadians(centerLat));
+        double lngDelta = cosLat < 1e-6 ? 360 : radiusKm / (KM_PER_DEGREE_LAT * cosLat);
+
+        int minLatIdx = latIndex(Math.max(-90, centerLat - latDelta));
+        int maxLatIdx = latIndex(Math.min(90, centerLat + latDelta));
+        int minLngIdx = (int) Math.floor((centerLng - lngDelta + 180) / cellSizeDeg);
+        int maxLngIdx = (int) Math.floor((centerLng + lngDelta + 180) / cellSizeDeg);
+        if (maxLngIdx - minLngIdx + 1 >= lonCells) {
+            minLngIdx = 0;
+            maxLngIdx = lonCells - 1;
+        }
+
+        List<Entry> candidates = new ArrayList<>();
+        long cellsInBox = (long) (maxLatIdx - minLatIdx + 1) * (maxLngIdx - minLngIdx + 1);
+
+        if (cellsInBox > cells.size()) {
+            // Very large radius: walking the populated cells is cheaper than walking the box
+            for (Entry entry : entries.values()) {
+                collect(entry, excludedOwnerId, candidates);
+            }
+        } else {
+            for (int latIdx = minLatIdx; latIdx <= maxLatIdx; latIdx++) {
+                for (int lngIdx = minLngIdx; lngIdx <= maxLngIdx; lngIdx++) {
+                    Set<Long> bookIds = cells.get(pack(latIdx, Math.floorMod(lngIdx, lonCells)));
+                    if (bookIds == null) {
+                        continue;
+                    }
+                    for (Long bookId : bookIds) {
+                        Entry entry = entries.get(bookId);
+                        if (entry != null) {
+                            collect(entry, excludedOwnerId, candidates);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Score all candidates against the center in one pass
+        DistanceBatch batch = new DistanceBatch(candidates.size());
+        for (Entry entry : candidates) {
+            batch.addRadians(entry.latitudeRad(), entry.longitudeRad(), entry.cosLatitude());
+        }
+        List<Entry> result = new ArrayList<>();
+        for (DistanceBatch.Match match : batch.within(centerLat, centerLng, radiusKm)) {
+            result.add(candidates.get(match.index()));
+        }
+        return result;
+    }
+
+    private static void collect(Entry entry, Long excludedOwnerId, List<Entry> candidates) {
+        if (excludedOwnerId == null || !excludedOwnerId.equals(entry.ownerId())) {
+            candidates.add(entry);
+        }
+    }
+
+    private void removeFromCell(long cellKey, Long bookId) {
+        cells.computeIfPresent(cellKey, (key, bookIds) -> {
+            bookIds.remove(bookId);
+            return bookIds.isEmpty() ? null : bookIds;
+        });
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        int lngIdx = Math.floorMod((int) Math.floor((longitude + 180) / cellSizeDeg), lonCells);
+        return pack(latIndex(latitude), lngIdx);
+    }
+
+    private int latIndex(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellSizeDeg);
+    }
+
+    private static long pack(int latIdx, int lngIdx) {
+        return ((long) latIdx << 32) | (lngIdx & 0xffffffffL);
+    }
+}
@@ -0,0 +1,69 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.event.BookLocationChangedEvent;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resolves and persists {@link Book#getLocationName()} so the read path never calls the geocoder.
+ * New and moved books are resolved asynchronously after commit; a scheduled job backfills the rest.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookLocationService {
+
+    private final BookRepository bookRepository;
+    private final GeocodingService geocodingService;
+
+    @Value("${book.location.backfill-batch-size:100}")
+    private int backfillBatchSize;
+
+    @Value("${book.location.retry-after-minutes:1440}")
+    private long retryAfterMinutes;
+
+    @Async
+    @TransactionalEventListener
+    public void onBookLocationChanged(BookLocationChangedEvent event) {
+        resolve(event.bookId(), event.latitude(), event.longitude());
+    }
+
+    // Picks up existing rows and any book whose lookup failed at write time; failures wait retryAfterMinutes
+    @Scheduled(initialDelayString = "${book.location.backfill-initial-delay-ms:60000}",
+            fixedDelayString = "${book.location.backfill-interval-ms:600000}")
+    public void backfillLocationNames() {
+        LocalDateTime retryBefore = LocalDateTime.now().minusMinutes(retryAfterMinutes);
+        List<Book> pending = bookRepository.findLocationNamesToResolve(retryBefore, Limit.of(backfillBatchSize));
+        int resolved = 0;
+        for (Book book : pending) {
+            if (resolve(book.getId(), book.getLatitude(), book.getLongitude())) {
+                resolved++;
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.info("Backfilled location names for {} of {} books", resolved, pending.size());
+        }
+    }
+
+    private boolean resolve(Long bookId, double latitude, double longitude) {
+        String locationName = geocodingService.getCityFromCoordinates(latitude, longitude);
+        if (GeocodingService.UNKNOWN_LOCATION.equals(locationName)) {
+            // Leave it null so the backfill retries later, but not before the rows behind it
+            bookRepository.markLocationAttempted(bookId, LocalDateTime.now());
+            return false;
+        }
+        // Guarded on the coordinates, so a slow lookup can't overwrite the name of a book that moved meanwhile
+        return bookRepository.updateLocationName(bookId, latitude, longitude, locationName) > 0;
+    }
+}
@@ -0,0 +1,288 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.event.BookChangedEvent;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.util.PageCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over book title, author, genre and description, ranked with
+ * field-weighted, saturated term frequency times IDF (a simplified BM25).
+ *
+ * Every indexed version of a book gets a fresh document slot; the previous slot is only
+ * tombstoned, so updates never rewrite posting lists. Slots are compacted once enough of
+ * them are dead.
+ */
+@Component
+@Slf4j
+public class BookSearchIndex {
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float AUTHOR_WEIGHT = 2.0f;
+    private static final float GENRE_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float SATURATION = 1.2f;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // How deep into the ranking a search may page; deeper offsets are rejected rather than ranked
+    public static final int MAX_OFFSET = 10 * PageCursor.MAX_LIMIT;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "to", "with");
+
+    public record Hit(Long bookId, float score) {
+    }
+
+    // A growable posting list: parallel arrays of document slots and term weights
+    private static final class Postings {
+        int[] slots = new int[4];
+        float[] weights = new float[4];
+        int size;
+
+        void add(int slot, float weight) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            slots[size] = slot;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    private final BookRepository bookRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<String, Postings> postings = new HashMap<>();
+    private long[] slotBookIds = new long[1024];
+    private long[] slotOwnerIds = new long[1024];
+    private byte[] slotStatuses = new byte[1024];
+    private BitSet liveSlots = new BitSet();
+    private Map<Long, Integer> slotByBookId = new HashMap<>();
+    private int slotCount;
+    private int liveCount;
+
+    public BookSearchIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    // Index the whole catalogue once the application is up, reading it in id-ordered batches
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long lastId = 0;
+        int indexed = 0;
+        List<Book> batch;
+        do {
+            batch = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+            for (Book book : batch) {
+                index(book);
+                lastId = book.getId();
+            }
+            indexed += batch.size();
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        log.info("Search index built with {} books and {} terms", indexed, postings.size());
+    }
+
+    // Keep the index in sync with committed book writes and swap acceptance
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.deleted()) {
+            remove(event.book().getId());
+        } else {
+            index(event.book());
+        }
+    }
+
+    public void index(Book book) {
+        Map<String, Float> termWeights = new LinkedHashMap<>();
+        addField(termWeights, book.getTitle(), TITLE_WEIGHT);
+        addField(termWeights, book.getAuthor(), AUTHOR_WEIGHT);
+        addField(termWeights, book.getGenre(), GENRE_WEIGHT);
+        addField(termWeights, book.getDescription(), DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            tombstone(book.getId());
+            int slot = slotCount++;
+            ensureCapacity(slotCount);
+            slotBookIds[slot] = book.getId();
+            slotOwnerIds[slot] = book.getOwner().getId();
+            slotStatuses[slot] = (byte) book.getStatus().ordinal();
+            liveSlots.set(slot);
+            liveCount++;
+            slotByBookId.put(book.getId(), slot);
+            termWeights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new Postings()).add(slot, weight));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            tombstone(bookId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks books matching any term of {@code query}, restricted to the given status and excluding
+     * books owned by {@code excludedOwnerId}. Returns hits {@code offset .. offset + limit} by score;
+     * {@code offset} must be within {@code 0 .. MAX_OFFSET}.
+     */
+    public List<Hit> search(String query, BookStatus status, Long excludedOwnerId, int offset, int limit) {
+        if (offset < 0 || offset > MAX_OFFSET || limit <= 0) {
+            throw new IllegalArgumentException("Search window out of range: offset " + offset + ", limit " + limit);
+        }
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documents = Math.max(1, liveCount);
+            float[] scores = new float[slotCount];
+            BitSet touched = new BitSet(slotCount);
+
+            for (String term : terms.stream().distinct().toList()) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                // Posting lists still hold tombstoned slots until compaction, so cap the document frequency
+                int frequency = Math.min(list.size, documents);
+                float idf = (float) Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int slot = list.slots[i];
+                    float weight = list.weights[i];
+                    scores[slot] += idf * (weight * (SATURATION + 1)) / (weight + SATURATION);
+                    touched.set(slot);
+                }
+            }
+
+            // Keep only the best (offset + limit) matches in a min-heap; it grows with the matches, not the window
+            int wanted = offset + limit;
+            PriorityQueue<Integer> top = new PriorityQueue<>(
+                    (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : Long.compare(slotBookIds[a], slotBookIds[b]));
+            byte statusCode = (byte) status.ordinal();
+            for (int slot = touched.nextSetBit(0); slot >= 0; slot = touched.nextSetBit(slot + 1)) {
+                if (!liveSlots.get(slot) || slotStatuses[slot] != statusCode
+                        || (excludedOwnerId != null && slotOwnerIds[slot] == excludedOwnerId)) {
+                    continue;
+                }
+                top.offer(slot);
+                if (top.size() > wanted) {
+                    top.poll();
+                }
+            }
+
+            List<Hit> ranked = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int slot = top.poll();
+                ranked.add(new Hit(slotBookIds[slot], scores[slot]));
+            }
+            Collections.reverse(ranked);
+            return offset >= ranked.size() ? List.of() : ranked.subList(offset, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    private static void addField(Map<String, Float> termWeights, String text, float fieldWeight) {
+        for (String term : tokenize(text)) {
+            termWeights.merge(term, fieldWeight, Float::sum);
+        }
+    }
+
+    private void tombstone(Long bookId) {
+        Integer previous = slotByBookId.remove(bookId);
+        if (previous != null) {
+            liveSlots.clear(previous);
+            liveCount--;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > slotBookIds.length) {
+            int capacity = Math.max(size, slotBookIds.length * 2);
+            slotBookIds = Arrays.copyOf(slotBookIds, capacity);
+            slotOwnerIds = Arrays.copyOf(slotOwnerIds, capacity);
+            slotStatuses = Arrays.copyOf(slotStatuses, capacity);
+        }
+    }
+
+    // Renumber live slots densely once at least half of them are tombstones
+    private void compactIfNeeded() {
+        if (slotCount < 1024 || liveCount * 2 > slotCount) {
+            return;
+        }
+        int[] remap = new int[slotCount];
+        Arrays.fill(remap, -1);
+        int next = 0;
+        for (int slot = liveSlots.nextSetBit(0); slot >= 0; slot = liveSlots.nextSetBit(slot + 1)) {
+            remap[slot] = next;
+            slotBookIds[next] = slotBookIds[slot];
+            slotOwnerIds[next] = slotOwnerIds[slot];
+            slotStatuses[next] = slotStatuses[slot];
+            slotByBookId.put(slotBookIds[next], next);
+            next++;
+        }
+
+        Map<String, Postings> compacted = new HashMap<>();
+        postings.forEach((term, list) -> {
+            Postings kept = new Postings();
+            for (int i = 0; i < list.size; i++) {
+                int target = remap[list.slots[i]];
+                if (target >= 0) {
+                    kept.add(target, list.weights[i]);
+                }
+            }
+            if (kept.size > 0) {
+                compacted.put(term, kept);
+            }
+        });
+
+        postings = compacted;
+        liveSlots = new BitSet(next);
+        liveSlots.set(0, next);
+        slotCount = next;
+    }
+}
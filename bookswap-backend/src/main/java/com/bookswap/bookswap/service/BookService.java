@@ -2,22 +2,40 @@ package com.bookswap.bookswap.service;
 
 import com.bookswap.bookswap.dto.BookRequestDTO;
 import com.bookswap.bookswap.dto.BookResponseDTO;
+import com.bookswap.bookswap.dto.CursorPage;
+import com.bookswap.bookswap.dto.ExploreResponseDTO;
 import com.bookswap.bookswap.enums.BookStatus;
 import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.event.BookChangedEvent;
+import com.bookswap.bookswap.event.BookLocationChangedEvent;
 import com.bookswap.bookswap.model.Book;
 import com.bookswap.bookswap.model.User;
 import com.bookswap.bookswap.repository.BookRepository;
 import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.repository.projection.BookRequestCountView;
 import com.bookswap.bookswap.util.HaversineUtil;
+import com.bookswap.bookswap.util.PageCursor;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,8 +45,11 @@ public class BookService {
 
     private final BookRepository bookRepository;
     private final FileStorageService fileStorageService;
-    private final GeocodingService geocodingService;
     private final SwapRequestRepository swapRequestRepository;
+    private final BookGeoIndex bookGeoIndex;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookFacetIndex bookFacetIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${book.photo.upload-dir}")
     private String bookPhotoUploadDir;
@@ -52,29 +73,165 @@ public class BookService {
                 .build();
 
         Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(savedBook));
+        eventPublisher.publishEvent(new BookLocationChangedEvent(savedBook.getId(), savedBook.getLatitude(), savedBook.getLongitude()));
         return mapToBookResponseDTO(savedBook, owner);
     }
 
     @Transactional(readOnly = true)
-    public List<BookResponseDTO> getBooksForUser(User owner) {
-        return bookRepository.findByOwnerOrderByIdDesc(owner).stream()
-                .map(book -> mapToBookResponseDTO(book, owner))
+    public CursorPage<BookResponseDTO> getBooksForUser(User owner, String cursor, Integer limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+
+        List<Book> books = bookRepository.findPageByOwner(owner, position.createdAt(), position.id(), Limit.of(pageSize));
+        Map<Long, Long> requestCounts = getPendingRequestCounts(books);
+        return CursorPage.of(books, pageSize, BookService::cursorOf,
+                book -> mapToBookResponseDTO(book, owner, requestCounts.getOrDefault(book.getId(), 0L)));
+    }
+
+    // Gets one page of available books, excluding those owned by the current user, plus facet counts.
+    // When a radius is given, only books within radiusKm of the center (default: the user's location) are returned.
+    @Transactional(readOnly = true)
+    public ExploreResponseDTO getExploreBooks(User currentUser, Double radiusKm, Double centerLat, Double centerLng,
+                                              BookFacetIndex.Filter filter, String cursor, Integer limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+
+        if (radiusKm != null) {
+            return getExploreBooksWithin(currentUser, radiusKm, centerLat, centerLng, filter, position, pageSize);
+        }
+
+        CursorPage<BookResponseDTO> page;
+        if (filter.isEmpty()) {
+            List<Book> exploreBooks = bookRepository.findExplorePage(
+                    currentUser,
+                    BookStatus.AVAILABLE,
+                    position.createdAt(),
+                    position.id(),
+                    Limit.of(pageSize)
+            );
+            Map<Long, Long> requestCounts = getPendingRequestCounts(exploreBooks);
+            page = CursorPage.of(exploreBooks, pageSize, BookService::cursorOf,
+                    book -> mapToBookResponseDTO(book, currentUser, requestCounts.getOrDefault(book.getId(), 0L)));
+        } else {
+            // Facet filters are answered by the bitmap index, which also orders and pages the matches
+            List<BookFacetIndex.Candidate> candidates = bookFacetIndex.page(filter, currentUser.getId(), position, pageSize);
+            page = loadIndexedPage(candidates, pageSize, currentUser);
+        }
+
+        return ExploreResponseDTO.builder()
+                .items(page.getItems())
+                .next(page.getNext())
+                .facets(bookFacetIndex.counts(filter, currentUser.getId(), null))
+                .build();
+    }
+
+    private ExploreResponseDTO getExploreBooksWithin(User currentUser, double radiusKm, Double centerLat, Double centerLng,
+                                                     BookFacetIndex.Filter filter, PageCursor position, int pageSize) {
+        if (radiusKm <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "radiusKm must be positive.");
+        }
+        Double lat = centerLat != null ? centerLat : currentUser.getLatitude();
+        Double lng = centerLng != null ? centerLng : currentUser.getLongitude();
+        if (lat == null || lng == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A center point is required when your location is not set.");
+        }
+
+        List<BookGeoIndex.Entry> nearby = bookGeoIndex.findWithin(lat, lng, radiusKm, currentUser.getId());
+
+        // The index orders and pages the candidates, so only one page of rows is loaded from the database
+        List<BookFacetIndex.Candidate> candidates = nearby.stream()
+                .filter(entry -> position.precedes(entry.createdAt(), entry.bookId()))
+                .filter(entry -> bookFacetIndex.matches(entry.bookId(), filter))
+                .sorted(Comparator.comparing(BookGeoIndex.Entry::createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                        .thenComparing(BookGeoIndex.Entry::bookId, Comparator.reverseOrder()))
+                .limit(pageSize)
+                .map(entry -> new BookFacetIndex.Candidate(entry.bookId(), entry.createdAt()))
                 .collect(Collectors.toList());
+        CursorPage<BookResponseDTO> page = loadIndexedPage(candidates, pageSize, currentUser);
+
+        List<Long> nearbyIds = nearby.stream().map(BookGeoIndex.Entry::bookId).collect(Collectors.toList());
+        return ExploreResponseDTO.builder()
+                .items(page.getItems())
+                .next(page.getNext())
+                .facets(bookFacetIndex.counts(filter, currentUser.getId(), nearbyIds))
+                .build();
     }
 
-    // Gets all available books, excluding those owned by the current user.
+    // Loads one index-ordered page of candidates. The cursor follows the candidates, so a row
+    // dropped by the database re-check doesn't end the listing early.
+    private CursorPage<BookResponseDTO> loadIndexedPage(List<BookFacetIndex.Candidate> candidates, int pageSize, User currentUser) {
+        List<Long> candidateIds = candidates.stream().map(BookFacetIndex.Candidate::bookId).collect(Collectors.toList());
+        String next = null;
+        if (candidates.size() == pageSize) {
+            BookFacetIndex.Candidate last = candidates.get(pageSize - 1);
+            next = new PageCursor(last.createdAt(), last.bookId()).encode();
+        }
+        return CursorPage.<BookResponseDTO>builder()
+                .items(loadAndMapInOrder(candidateIds, currentUser))
+                .next(next)
+                .build();
+    }
+
+    // Loads the given books in one query and maps them in the given order. Indexes are only a
+    // candidate filter, so status and ownership are re-checked against what was loaded.
+    private List<BookResponseDTO> loadAndMapInOrder(List<Long> orderedIds, User currentUser) {
+        Map<Long, Book> booksById = bookRepository.findByIdIn(orderedIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        List<Book> books = orderedIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .filter(book -> book.getStatus() == BookStatus.AVAILABLE)
+                .filter(book -> !book.getOwner().getId().equals(currentUser.getId()))
+                .collect(Collectors.toList());
+        Map<Long, Long> requestCounts = getPendingRequestCounts(books);
+        return books.stream()
+                .map(book -> mapToBookResponseDTO(book, currentUser, requestCounts.getOrDefault(book.getId(), 0L)))
+                .collect(Collectors.toList());
+    }
+
+    // Full-text search over available books not owned by the current user, best matches first.
+    // The cursor is an opaque offset into the ranking.
     @Transactional(readOnly = true)
-    public List<BookResponseDTO> getExploreBooks(User currentUser) {
-        // We call our new repository method, passing the current user and the desired status
-        List<Book> exploreBooks = bookRepository.findAllByOwnerNotAndStatusOrderByCreatedAtDesc(
-                currentUser,
-                BookStatus.AVAILABLE
-        );
-
-        // We map the results to DTOs, just like we do for the other methods
-        return exploreBooks.stream()
-                .map(book -> mapToBookResponseDTO(book, currentUser))
+    public CursorPage<BookResponseDTO> searchBooks(User currentUser, String query, String cursor, Integer limit) {
+        int offset = decodeOffset(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+
+        List<Long> rankedIds = bookSearchIndex.search(query, BookStatus.AVAILABLE, currentUser.getId(), offset, pageSize).stream()
+                .map(BookSearchIndex.Hit::bookId)
                 .collect(Collectors.toList());
+
+        return CursorPage.<BookResponseDTO>builder()
+                .items(loadAndMapInOrder(rankedIds, currentUser))
+                .next(rankedIds.size() == pageSize && offset + pageSize <= BookSearchIndex.MAX_OFFSET
+                        ? encodeOffset(offset + pageSize) : null)
+                .build();
+    }
+
+    private static int decodeOffset(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        int offset;
+        try {
+            offset = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+        // The offset comes from the client: only the depths we hand out are accepted
+        if (offset < 0 || offset > BookSearchIndex.MAX_OFFSET) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+        return offset;
+    }
+
+    private static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PageCursor cursorOf(Book book) {
+        return new PageCursor(book.getCreatedAt(), book.getId());
     }
 
     public BookResponseDTO updateBook(Long bookId, BookRequestDTO request, MultipartFile photo, User currentUser) {
@@ -86,6 +243,9 @@ public class BookService {
             throw new AccessDeniedException("You are not authorized to edit this book.");
         }
 
+        boolean locationChanged = !Objects.equals(book.getLatitude(), request.getLatitude())
+                || !Objects.equals(book.getLongitude(), request.getLongitude());
+
         // Update fields from the request
         book.setTitle(request.getTitle());
         book.setAuthor(request.getAuthor());
@@ -97,6 +257,10 @@ public class BookService {
         book.setLatitude(request.getLatitude());
         book.setLongitude(request.getLongitude());
         book.setStatus(request.getStatus());
+        if (locationChanged) {
+            book.setLocationName(null); // Re-resolved asynchronously after commit
+            book.setLocationAttemptedAt(null);
+        }
 
         if (photo != null && !photo.isEmpty()) {
             String newPhotoFileName = fileStorageService.storeFile(photo, bookPhotoUploadDir);
@@ -104,6 +268,10 @@ public class BookService {
         }
 
         Book updatedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(updatedBook));
+        if (locationChanged) {
+            eventPublisher.publishEvent(new BookLocationChangedEvent(updatedBook.getId(), updatedBook.getLatitude(), updatedBook.getLongitude()));
+        }
         return mapToBookResponseDTO(updatedBook, currentUser);
     }
 
@@ -118,15 +286,30 @@ public class BookService {
 
         // Optional: delete photo file from storage
         bookRepository.delete(book);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(book));
     }
 
 
+    // Pending request counts for a whole page of books (book id -> count), in a single grouped query
+    @Transactional(readOnly = true)
+    public Map<Long, Long> getPendingRequestCounts(Collection<Book> books) {
+        if (books.isEmpty()) {
+            return Map.of();
+        }
+        Set<Long> bookIds = books.stream().map(Book::getId).collect(Collectors.toSet());
+        return swapRequestRepository.countByBookIdsAndStatus(bookIds, SwapRequestStatus.PENDING).stream()
+                .collect(Collectors.toMap(BookRequestCountView::getBookId, BookRequestCountView::getCount));
+    }
+
+    // Single-book mapping (create/update): counts pending requests for just this book
     public BookResponseDTO mapToBookResponseDTO(Book book, User currentUser) {
-        String photoUrl = book.getPhotoUrl() != null
-                ? "http://localhost:8080/uploads/book-pics/" + book.getPhotoUrl()
-                : null;
+        Long requestCount = swapRequestRepository.countByBookAndStatus(book, SwapRequestStatus.PENDING);
+        return mapToBookResponseDTO(book, currentUser, requestCount);
+    }
 
-        String locationName = geocodingService.getCityFromCoordinates(book.getLatitude(), book.getLongitude());
+    // List mapping: the pending count comes from getPendingRequestCounts for the whole page
+    public BookResponseDTO mapToBookResponseDTO(Book book, User currentUser, Long requestCount) {
+        String photoUrl = photoUrlOf(book.getPhotoUrl());
 
         double distance = 0.0;
         if (currentUser.getLatitude() != null && currentUser.getLongitude() != null) {
@@ -136,9 +319,6 @@ public class BookService {
             );
         }
 
-        // Count pending requests for this book
-        Long requestCount = swapRequestRepository.countByBookAndStatus(book, SwapRequestStatus.PENDING);
-
         return BookResponseDTO.builder()
                 .id(book.getId())
                 .title(book.getTitle())
@@ -155,9 +335,13 @@ public class BookService {
                 .ownerId(book.getOwner().getId())
                 .ownerName(book.getOwner().getName())
                 .createdAt(book.getCreatedAt())
-                .locationName(locationName)
+                .locationName(book.getLocationName())
                 .distanceKm(distance)
                 .requestCount(requestCount)
                 .build();
     }
-}
\ No newline at end of file
+
+    public static String photoUrlOf(String fileName) {
+        return fileName != null ? "http://localhost:8080/uploads/book-pics/" + fileName : null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.config.PendingRequestIndexInitializer;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.event.SwapRequestChangedEvent;
+import com.bookswap.bookswap.event.SwapRequestsChangedEvent;
+import com.bookswap.bookswap.model.NotificationOutbox;
+import com.bookswap.bookswap.model.SwapRequest;
+import com.bookswap.bookswap.repository.NotificationOutboxRepository;
+import com.bookswap.bookswap.repository.SwapRequestRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One-off maintenance for databases from before the pending-request unique index: when a requester has
+ * several PENDING requests for the same book, the newest stays and the older ones are CANCELLED, so the
+ * index can be created. Enabled for a single start with
+ * {@code swap.maintenance.cancel-duplicate-pending-requests=true}.
+ *
+ * The change goes through the usual swap event, so the match index drops the cancelled requests, and
+ * each requester is told through the outbox. Every cancelled request is logged.
+ */
+@Component
+@ConditionalOnProperty(name = "swap.maintenance.cancel-duplicate-pending-requests", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class DuplicatePendingRequestCleanup implements ApplicationRunner {
+
+    private final SwapRequestRepository swapRequestRepository;
+    private final NotificationOutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final PendingRequestIndexInitializer pendingRequestIndexInitializer;
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        int cancelled = cancelSupersededRequests();
+        log.warn("Cancelled {} duplicate pending swap requests; remove " +
+                "swap.maintenance.cancel-duplicate-pending-requests from the configuration", cancelled);
+        pendingRequestIndexInitializer.createIndex();
+    }
+
+    public int cancelSupersededRequests() {
+        Integer cancelled = transactionTemplate.execute(status -> {
+            List<SwapRequest> superseded = swapRequestRepository.findSupersededByStatus(SwapRequestStatus.PENDING);
+            if (superseded.isEmpty()) {
+                return 0;
+            }
+            List<Long> ids = superseded.stream().map(SwapRequest::getId).toList();
+            swapRequestRepository.transitionStatus(ids, SwapRequestStatus.PENDING, SwapRequestStatus.CANCELLED, LocalDateTime.now());
+            for (SwapRequest request : superseded) {
+                log.warn("Cancelling swap request {} for book {}: requester {} has a newer pending request for it",
+                        request.getId(), request.getBook().getId(), request.getRequester().getId());
+            }
+            outboxRepository.saveAll(superseded.stream().map(DuplicatePendingRequestCleanup::notice).toList());
+            eventPublisher.publishEvent(new SwapRequestsChangedEvent(superseded.stream()
+                    .map(request -> SwapRequestChangedEvent.of(request, SwapRequestStatus.CANCELLED))
+                    .toList()));
+            return superseded.size();
+        });
+        return cancelled != null ? cancelled : 0;
+    }
+
+    private static NotificationOutbox notice(SwapRequest request) {
+        return NotificationOutbox.builder()
+                .recipientId(request.getRequester().getId())
+                .type("REQUEST_CANCELLED")
+                .message("Your duplicate request for '" + request.getBook().getTitle() +
+                        "' was cancelled; your latest request for it is still pending")
+                .relatedSwapRequestId(request.getId())
+                .relatedBookId(request.getBook().getId())
+                .relatedBookTitle(request.getBook().getTitle())
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
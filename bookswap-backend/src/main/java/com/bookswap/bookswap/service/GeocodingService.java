@@ -1,5 +1,8 @@
 package com.bookswap.bookswap.service;
 
+import com.bookswap.bookswap.util.BoundedTtlCache;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.maps.GeoApiContext;
 import com.google.maps.GeocodingApi;
 import com.google.maps.errors.ApiException;
@@ -7,33 +10,114 @@ import com.google.maps.model.AddressComponent;
 import com.google.maps.model.AddressComponentType;
 import com.google.maps.model.GeocodingResult;
 import com.google.maps.model.LatLng;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class GeocodingService {
 
+    public static final String UNKNOWN_LOCATION = "Unknown Location";
+
+    // On-disk representation of one cache entry
+    record PersistedEntry(String key, String city, long expiresAt) {
+    }
+
     private final GeoApiContext context;
+    private final ObjectMapper objectMapper;
+
+    // Reverse-geocode results keyed on coordinates rounded to cachePrecision decimal places,
+    // so books in the same neighbourhood share one lookup
+    private final BoundedTtlCache<String, String> cache;
+    private final double quantizationFactor;
+    private final Path cacheFile;
+    private volatile boolean dirty;
+
+    // Caps concurrent calls to Google; under virtual threads nothing else would
+    private final Semaphore lookupPermits;
+    private final long lookupAcquireTimeoutMillis;
 
     // The GeoApiContext is the entry point for making requests to Google Maps APIs.
     // It's created once with the API key and then reused.
-    public GeocodingService(@Value("${google.maps.api.key}") String apiKey) {
+    public GeocodingService(@Value("${google.maps.api.key}") String apiKey,
+                            @Value("${geocoding.cache.max-size:10000}") int cacheMaxSize,
+                            @Value("${geocoding.cache.ttl-hours:168}") long cacheTtlHours,
+                            @Value("${geocoding.cache.precision:2}") int cachePrecision,
+                            @Value("${geocoding.cache.file:}") String cacheFile,
+                            @Value("${geocoding.max-concurrent-requests:8}") int maxConcurrentRequests,
+                            @Value("${geocoding.acquire-timeout-ms:2000}") long acquireTimeoutMillis,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry) {
         this.context = new GeoApiContext.Builder()
                 .apiKey(apiKey)
                 .build();
+        this.objectMapper = objectMapper;
+        this.cache = new BoundedTtlCache<>(cacheMaxSize, cacheTtlHours * 60 * 60 * 1000);
+        this.quantizationFactor = Math.pow(10, cachePrecision);
+        this.cacheFile = cacheFile.isBlank() ? null : Paths.get(cacheFile).toAbsolutePath().normalize();
+        this.lookupPermits = new Semaphore(maxConcurrentRequests, true);
+        this.lookupAcquireTimeoutMillis = acquireTimeoutMillis;
+
+        FunctionCounter.builder("geocoding.cache.hits", cache, BoundedTtlCache::hitCount).register(meterRegistry);
+        FunctionCounter.builder("geocoding.cache.misses", cache, BoundedTtlCache::missCount).register(meterRegistry);
+        FunctionCounter.builder("geocoding.cache.evictions", cache, BoundedTtlCache::evictionCount).register(meterRegistry);
+        Gauge.builder("geocoding.cache.size", cache, BoundedTtlCache::size).register(meterRegistry);
+        Gauge.builder("geocoding.requests.available-permits", lookupPermits, Semaphore::availablePermits).register(meterRegistry);
+
+        loadCache();
     }
 
     /**
      * Performs a reverse geocoding lookup to find a city name from coordinates.
+     * Results are served from the quantized cache when possible.
      * @param lat Latitude
      * @param lng Longitude
      * @return The city name (locality) or a default string if not found.
      */
     public String getCityFromCoordinates(double lat, double lng) {
+        String key = cacheKey(lat, lng);
+        String cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        String city = lookupCity(lat, lng);
+        // Failures are not cached, so a transient API error doesn't stick for the whole TTL
+        if (city != null) {
+            cache.put(key, city);
+            dirty = true;
+            return city;
+        }
+        return UNKNOWN_LOCATION; // Default fallback
+    }
+
+    // Package-private so tests can stand in for the Google API; null means the lookup failed
+    String lookupCity(double lat, double lng) {
+        try {
+            if (!lookupPermits.tryAcquire(lookupAcquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Reverse geocoding skipped: no lookup slot free within {} ms", lookupAcquireTimeoutMillis);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
         try {
             // Make the API call to Google
             GeocodingResult[] results = GeocodingApi.reverseGeocode(context, new LatLng(lat, lng)).await();
@@ -52,10 +136,57 @@ public class GeocodingService {
                 // If locality is not found, return a formatted address as a fallback
                 return bestResult.formattedAddress;
             }
-        } catch (ApiException | InterruptedException | IOException e) {
-            log.error("Error during reverse geocoding", e);
+        } catch (InterruptedException e) {
+            log.error("Interrupted during reverse geocoding", e);
             Thread.currentThread().interrupt(); // Good practice
+        } catch (ApiException | IOException e) {
+            log.error("Error during reverse geocoding", e);
+        } finally {
+            lookupPermits.release();
+        }
+        return null;
+    }
+
+    private String cacheKey(double lat, double lng) {
+        return Math.round(lat * quantizationFactor) + ":" + Math.round(lng * quantizationFactor);
+    }
+
+    // Periodically write the cache to disk so a restart doesn't cold-start against the API
+    @Scheduled(fixedDelayString = "${geocoding.cache.flush-interval-ms:300000}")
+    public void flushCache() {
+        if (cacheFile == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        List<PersistedEntry> snapshot = new ArrayList<>();
+        cache.forEach((key, city, expiresAt) -> snapshot.add(new PersistedEntry(key, city, expiresAt)));
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            log.warn("Could not persist geocoding cache to {}", cacheFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushCache();
+    }
+
+    private void loadCache() {
+        if (cacheFile == null || !Files.exists(cacheFile)) {
+            return;
+        }
+        try {
+            List<PersistedEntry> entries = objectMapper.readValue(cacheFile.toFile(), new TypeReference<>() {
+            });
+            entries.forEach(entry -> cache.put(entry.key(), entry.city(), entry.expiresAt()));
+            log.info("Loaded {} geocoding cache entries from {}", cache.size(), cacheFile);
+        } catch (IOException e) {
+            log.warn("Could not load geocoding cache from {}", cacheFile, e);
         }
-        return "Unknown Location"; // Default fallback
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,25 @@
 package com.bookswap.bookswap.service;
 
+import com.bookswap.bookswap.util.BoundedTtlCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,12 +28,60 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
-    // A secure key for signing the token, should be stored securely
-    @Value("${jwt.secret.key}")
-    private String SECRET_KEY;
+    // The subject and expiry of a token whose signature and expiry have been checked
+    public record ValidatedToken(String username, Date expiresAt) {
+    }
+
+    // The signing key and parser are built once from the configured secret and reused
+    private final Key signInKey;
+    private final JwtParser parser;
+
+    // Tokens already verified, keyed by SHA-256 of the token and kept until the token expires,
+    // so a hot token skips the HMAC check on later requests
+    private final BoundedTtlCache<String, ValidatedToken> validatedTokens;
+
+    public JwtService(@Value("${jwt.secret.key}") String secretKey,
+                      @Value("${jwt.cache.max-size:10000}") int cacheMaxSize,
+                      MeterRegistry meterRegistry) {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        // Entries always carry the token's own expiry, so the default TTL is never used
+        this.validatedTokens = new BoundedTtlCache<>(cacheMaxSize, 0);
+
+        FunctionCounter.builder("jwt.cache.hits", validatedTokens, BoundedTtlCache::hitCount).register(meterRegistry);
+        FunctionCounter.builder("jwt.cache.misses", validatedTokens, BoundedTtlCache::missCount).register(meterRegistry);
+        Gauge.builder("jwt.cache.size", validatedTokens, BoundedTtlCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Verifies the token's signature and expiry, at most once per distinct token until it expires.
+     * @return the validated subject and expiry, or null if the token is malformed, forged or expired.
+     */
+    public ValidatedToken validate(String token) {
+        String digest = digest(token);
+        ValidatedToken cached = validatedTokens.get(digest);
+        if (cached != null) {
+            return cached;
+        }
 
+        Claims claims;
+        try {
+            claims = extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        ValidatedToken validated = new ValidatedToken(claims.getSubject(), claims.getExpiration());
+        if (validated.username() == null || validated.expiresAt() == null) {
+            return null;
+        }
+        validatedTokens.put(digest, validated, validated.expiresAt().getTime());
+        return validated;
+    }
+
+    // Null when the token is not valid
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        ValidatedToken validated = validate(token);
+        return validated != null ? validated.username() : null;
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -41,33 +99,26 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24)) // 24 hours
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        ValidatedToken validated = validate(token);
+        return validated != null && validated.username().equals(userDetails.getUsername());
     }
 
+    // Parsing verifies the signature and rejects expired tokens
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,238 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.event.SwapRequestChangedEvent;
+import com.bookswap.bookswap.event.SwapRequestsChangedEvent;
+import com.bookswap.bookswap.model.NotificationOutbox;
+import com.bookswap.bookswap.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transactional outbox for swap notifications. The swap transaction only inserts a small outbox
+ * row; after commit (and on a schedule, as a safety net) the outbox is drained in batches into
+ * real notifications. An entry is deleted only in the transaction that creates its notification,
+ * so nothing is lost if delivery fails; failed entries are retried with exponential backoff, and
+ * dropped with an error log once they have failed {@code max-attempts} times.
+ */
+@Service
+@Slf4j
+public class NotificationOutboxRelay {
+
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+
+    private static final String INSERT_OUTBOX_SQL = "insert into notification_outbox " +
+            "(recipient_id, type, message, related_swap_request_id, related_book_id, related_book_title, " +
+            "attempts, next_attempt_at, created_at) values (?, ?, ?, ?, ?, ?, 0, ?, ?)";
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationService notificationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long maxBackoffMillis;
+    private final int maxAttempts;
+    private final Counter dropped;
+
+    // One drain at a time per instance; a drain requested meanwhile makes the running one go round again
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+    // Refreshed by the drain loop, so scraping the gauge doesn't count the table
+    private final AtomicLong backlog = new AtomicLong();
+
+    public NotificationOutboxRelay(NotificationOutboxRepository outboxRepository,
+                                   NotificationService notificationService,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${notifications.outbox.batch-size:100}") int batchSize,
+                                   @Value("${notifications.outbox.max-backoff-ms:600000}") long maxBackoffMillis,
+                                   @Value("${notifications.outbox.max-attempts:15}") int maxAttempts,
+                                   MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.notificationService = notificationService;
+        this.jdbcTemplate = jdbcTemplate;
+        // Always a fresh transaction: an after-commit callback may still see the swap transaction as current
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.maxAttempts = maxAttempts;
+        this.dropped = Counter.builder("notifications.outbox.dropped").register(meterRegistry);
+        // Entries waiting for delivery, due or backing off; a steady climb means the relay is failing
+        Gauge.builder("notifications.outbox.backlog", backlog, AtomicLong::get).register(meterRegistry);
+    }
+
+    // Runs inside the swap transaction, so the outbox row commits or rolls back with the swap change
+    @EventListener
+    public void onSwapRequestChanged(SwapRequestChangedEvent event) {
+        NotificationOutbox entry = toOutboxEntry(event);
+        if (entry != null) {
+            outboxRepository.save(entry);
+        }
+    }
+
+    @Async
+    @TransactionalEventListener
+    public void onSwapRequestCommitted(SwapRequestChangedEvent event) {
+        drain();
+    }
+
+    // Many changes at once: the rows go in as one JDBC batch on the swap transaction's connection
+    @EventListener
+    public void onSwapRequestsChanged(SwapRequestsChangedEvent event) {
+        List<NotificationOutbox> entries = event.changes().stream()
+                .map(NotificationOutboxRelay::toOutboxEntry)
+                .filter(Objects::nonNull)
+                .toList();
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, entries, entries.size(), (statement, entry) -> {
+            statement.setLong(1, entry.getRecipientId());
+            statement.setString(2, entry.getType());
+            statement.setString(3, entry.getMessage());
+            statement.setObject(4, entry.getRelatedSwapRequestId(), Types.BIGINT);
+            statement.setObject(5, entry.getRelatedBookId(), Types.BIGINT);
+            statement.setString(6, entry.getRelatedBookTitle());
+            statement.setTimestamp(7, Timestamp.valueOf(entry.getNextAttemptAt()));
+            statement.setTimestamp(8, now);
+        });
+    }
+
+    @Async
+    @TransactionalEventListener
+    public void onSwapRequestsCommitted(SwapRequestsChangedEvent event) {
+        drain();
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-interval-ms:10000}")
+    public void drain() {
+        drainRequested.set(true);
+        while (drainRequested.get() && drainLock.tryLock()) {
+            try {
+                while (drainRequested.getAndSet(false)) {
+                    while (drainBatch() == batchSize) {
+                        // keep going while full batches come back
+                    }
+                }
+                refreshBacklog();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    // Delivers up to batchSize due entries; returns how many were taken off the queue
+    private int drainBatch() {
+        try {
+            Integer delivered = transactionTemplate.execute(status -> {
+                List<NotificationOutbox> due = outboxRepository.lockDueEntries(LocalDateTime.now(), Limit.of(batchSize));
+                if (!due.isEmpty()) {
+                    notificationService.createNotifications(due);
+                    outboxRepository.deleteAllInBatch(due);
+                }
+                return due.size();
+            });
+            return delivered != null ? delivered : 0;
+        } catch (RuntimeException e) {
+            log.warn("Notification outbox batch failed, retrying entries one by one", e);
+            return drainOneByOne();
+        }
+    }
+
+    // Isolates the entries that fail so they don't hold back the rest of the batch. The listing's locks end
+    // with its transaction, so each entry is locked again in the transaction that delivers it.
+    private int drainOneByOne() {
+        List<NotificationOutbox> due = transactionTemplate.execute(status ->
+                outboxRepository.lockDueEntries(LocalDateTime.now(), Limit.of(batchSize)));
+        if (due == null) {
+            return 0;
+        }
+        for (NotificationOutbox entry : due) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> outboxRepository.lockDueEntry(entry.getId(), LocalDateTime.now())
+                        .ifPresent(current -> {
+                            notificationService.createNotifications(List.of(current));
+                            outboxRepository.delete(current);
+                        }));
+            } catch (RuntimeException e) {
+                int attempts = entry.getAttempts() + 1;
+                if (attempts >= maxAttempts) {
+                    // Retrying forever would keep a poison entry in every drain; give it up loudly instead
+                    transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAllByIdInBatch(List.of(entry.getId())));
+                    dropped.increment();
+                    log.error("Dropping notification outbox entry {} ({} for user {}: \"{}\") after {} failed attempts",
+                            entry.getId(), entry.getType(), entry.getRecipientId(), entry.getMessage(), attempts, e);
+                    continue;
+                }
+                LocalDateTime nextAttemptAt = LocalDateTime.now().plusNanos(backoffMillis(entry.getAttempts()) * 1_000_000);
+                transactionTemplate.executeWithoutResult(status -> outboxRepository.recordFailedAttempt(entry.getId(), nextAttemptAt));
+                log.warn("Notification outbox entry {} failed (attempt {}), next try at {}",
+                        entry.getId(), attempts, nextAttemptAt, e);
+            }
+        }
+        return due.size();
+    }
+
+    private void refreshBacklog() {
+        try {
+            backlog.set(outboxRepository.count());
+        } catch (RuntimeException e) {
+            log.warn("Could not count the notification outbox backlog", e);
+        }
+    }
+
+    private long backoffMillis(int attempts) {
+        return Math.min(maxBackoffMillis, BASE_BACKOFF_MILLIS << Math.min(attempts, 20));
+    }
+
+    private static NotificationOutbox toOutboxEntry(SwapRequestChangedEvent event) {
+        NotificationOutbox.NotificationOutboxBuilder entry = NotificationOutbox.builder()
+                .relatedSwapRequestId(event.swapRequestId())
+                .relatedBookId(event.bookId())
+                .relatedBookTitle(event.bookTitle())
+                .nextAttemptAt(LocalDateTime.now());
+
+        return switch (event.status()) {
+            case PENDING -> entry
+                    .recipientId(event.ownerId())
+                    .type("NEW_REQUEST")
+                    .message(event.requesterName() + " requested your book '" + event.bookTitle() + "'")
+                    .build();
+            case ACCEPTED -> entry
+                    .recipientId(event.requesterId())
+                    .type("REQUEST_ACCEPTED")
+                    .message(event.ownerName() + " accepted your request for '" + event.bookTitle() + "'")
+                    .build();
+            case DECLINED -> entry
+                    .recipientId(event.requesterId())
+                    .type("REQUEST_DECLINED")
+                    .message(event.ownerName() + " declined your request for '" + event.bookTitle() + "'")
+                    .build();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.model.Notification;
+import com.bookswap.bookswap.repository.NotificationArchiveRepository;
+import com.bookswap.bookswap.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the notifications table small: read notifications older than {@code read-age-days} are
+ * moved to notifications_archive (or deleted outright). Unread notifications are never touched.
+ *
+ * Work is done in batches of {@code batch-size}, each in its own short transaction, and a run
+ * stops after {@code max-batches-per-run} so a large backlog is worked off over several runs
+ * instead of holding locks for minutes.
+ *
+ * Rows marked read before readAt was recorded have it null; each run first gives those their
+ * createdAt as readAt (in the same kind of batches), so they age out like the rest.
+ */
+@Service
+@Slf4j
+public class NotificationRetentionJob {
+
+    public enum Mode {
+        ARCHIVE, DELETE, OFF
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Mode mode;
+    private final long readAgeDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public NotificationRetentionJob(NotificationRepository notificationRepository,
+                                    NotificationArchiveRepository archiveRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${notifications.retention.mode:ARCHIVE}") Mode mode,
+                                    @Value("${notifications.retention.read-age-days:90}") long readAgeDays,
+                                    @Value("${notifications.retention.batch-size:500}") int batchSize,
+                                    @Value("${notifications.retention.max-batches-per-run:100}") int maxBatchesPerRun) {
+        this.notificationRepository = notificationRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.mode = mode;
+        this.readAgeDays = readAgeDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    // Returns how many notifications were moved or deleted
+    @Scheduled(fixedDelayString = "${notifications.retention.interval-ms:3600000}")
+    public int run() {
+        if (mode == Mode.OFF) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(readAgeDays);
+        int batch = backfillReadAt();
+        int total = 0;
+        for (; batch < maxBatchesPerRun; batch++) {
+            Integer processed = transactionTemplate.execute(status -> processBatch(cutoff));
+            total += processed;
+            if (processed < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Notification retention: {} {} read notifications older than {} days",
+                    mode == Mode.ARCHIVE ? "archived" : "deleted", total, readAgeDays);
+        }
+        return total;
+    }
+
+    // Returns how many batches did work, which count against the run's budget. Once nothing is left
+    // to backfill this is a single index probe.
+    private int backfillReadAt() {
+        int batches = 0;
+        int backfilled = 0;
+        while (batches < maxBatchesPerRun) {
+            Integer updated = transactionTemplate.execute(status -> {
+                List<Long> ids = notificationRepository.findReadWithoutReadAt(Limit.of(batchSize));
+                return ids.isEmpty() ? 0 : notificationRepository.backfillReadAt(ids);
+            });
+            if (updated == 0) {
+                break;
+            }
+            batches++;
+            backfilled += updated;
+        }
+        if (backfilled > 0) {
+            log.info("Notification retention: set readAt from createdAt on {} read notifications", backfilled);
+        }
+        return batches;
+    }
+
+    private int processBatch(LocalDateTime cutoff) {
+        List<Long> ids = notificationRepository.lockReadBefore(cutoff, Limit.of(batchSize)).stream()
+                .map(Notification::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        if (mode == Mode.ARCHIVE) {
+            archiveRepository.copyFromNotifications(ids);
+        }
+        return notificationRepository.deleteByIdIn(ids);
+    }
+}
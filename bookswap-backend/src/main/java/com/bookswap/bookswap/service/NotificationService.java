@@ -1,62 +1,173 @@
 package com.bookswap.bookswap.service;
 
+import com.bookswap.bookswap.dto.CursorPage;
 import com.bookswap.bookswap.dto.NotificationResponseDTO;
+import com.bookswap.bookswap.event.NotificationCreatedEvent;
+import com.bookswap.bookswap.event.NotificationsReadEvent;
 import com.bookswap.bookswap.model.Notification;
+import com.bookswap.bookswap.model.NotificationOutbox;
 import com.bookswap.bookswap.model.User;
 import com.bookswap.bookswap.repository.NotificationRepository;
 import com.bookswap.bookswap.repository.UserRepository;
+import com.bookswap.bookswap.util.PageCursor;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class NotificationService {
 
+    // Notification types whose events for the same book are merged into one row
+    private static final Set<String> COALESCED_TYPES = Set.of("NEW_REQUEST");
+
+    private record CoalesceKey(Long recipientId, String type, Long bookId) {
+    }
+
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UnreadCountTracker unreadCounts;
+
+    @Value("${notifications.coalesce.window-minutes:60}")
+    private long coalesceWindowMinutes;
+
+    // Create the notifications for a batch of outbox entries. Recipients are referenced by id only,
+    // so no user rows are loaded. NEW_REQUEST entries for the same book are coalesced: they are merged
+    // into the owner's unread notification for that book from the last coalesce window if there is one,
+    // otherwise into a single new row, e.g. "5 people requested your book 'Dune'".
+    public void createNotifications(Collection<NotificationOutbox> entries) {
+        List<NotificationOutbox> separate = new ArrayList<>();
+        Map<CoalesceKey, List<NotificationOutbox>> groups = new LinkedHashMap<>();
+        for (NotificationOutbox entry : entries) {
+            if (COALESCED_TYPES.contains(entry.getType()) && entry.getRelatedBookId() != null) {
+                CoalesceKey key = new CoalesceKey(entry.getRecipientId(), entry.getType(), entry.getRelatedBookId());
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+            } else {
+                separate.add(entry);
+            }
+        }
 
-    // Create a new notification
-    public void createNotification(Long userId, String type, String message, Long swapRequestId, Long bookId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> created = new ArrayList<>();
+        List<NotificationCreatedEvent> merged = new ArrayList<>();
+        separate.forEach(entry -> created.add(newNotification(entry, 1, entry.getMessage(), now)));
+
+        Map<CoalesceKey, Notification> open = findCoalesceTargets(groups.keySet());
+        groups.forEach((key, group) -> {
+            NotificationOutbox latest = group.get(group.size() - 1);
+            Notification target = open.get(key);
+            // Merged with a conditional UPDATE rather than through the loaded entity, so a mark-as-read
+            // that commits in between is not overwritten; if the target was read meanwhile, start a new row
+            if (target != null && notificationRepository.mergeInto(target.getId(), group.size(), coalescedSuffix(latest),
+                    latest.getRelatedSwapRequestId(), now) > 0) {
+                int count = aggregateCountOf(target) + group.size();
+                NotificationResponseDTO dto = mapToDTO(target);
+                dto.setAggregateCount(count);
+                dto.setMessage(count + coalescedSuffix(latest));
+                dto.setRelatedSwapRequestId(latest.getRelatedSwapRequestId());
+                dto.setLastEventAt(now);
+                merged.add(new NotificationCreatedEvent(key.recipientId(), dto, true));
+            } else {
+                String message = group.size() == 1 ? latest.getMessage() : group.size() + coalescedSuffix(latest);
+                created.add(newNotification(latest, group.size(), message, now));
+            }
+        });
 
-        Notification notification = Notification.builder()
-                .user(user)
-                .type(type)
+        notificationRepository.saveAll(created);
+        // Pushed to the recipients' open streams after commit
+        created.forEach(notification -> eventPublisher.publishEvent(
+                new NotificationCreatedEvent(notification.getUser().getId(), mapToDTO(notification), false)));
+        merged.forEach(eventPublisher::publishEvent);
+    }
+
+    // The newest open notification per key, loaded in one query
+    private Map<CoalesceKey, Notification> findCoalesceTargets(Set<CoalesceKey> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        Set<Long> userIds = new HashSet<>();
+        Set<String> types = new HashSet<>();
+        Set<Long> bookIds = new HashSet<>();
+        keys.forEach(key -> {
+            userIds.add(key.recipientId());
+            types.add(key.type());
+            bookIds.add(key.bookId());
+        });
+
+        Map<CoalesceKey, Notification> targets = new HashMap<>();
+        LocalDateTime since = LocalDateTime.now().minusMinutes(coalesceWindowMinutes);
+        for (Notification notification : notificationRepository.findCoalesceTargets(userIds, types, bookIds, since)) {
+            CoalesceKey key = new CoalesceKey(notification.getUser().getId(), notification.getType(), notification.getRelatedBookId());
+            if (keys.contains(key)) {
+                targets.put(key, notification);
+            }
+        }
+        return targets;
+    }
+
+    private Notification newNotification(NotificationOutbox entry, int aggregateCount, String message, LocalDateTime now) {
+        return Notification.builder()
+                .user(userRepository.getReferenceById(entry.getRecipientId()))
+                .type(entry.getType())
                 .message(message)
-                .relatedSwapRequestId(swapRequestId)
-                .relatedBookId(bookId)
+                .relatedSwapRequestId(entry.getRelatedSwapRequestId())
+                .relatedBookId(entry.getRelatedBookId())
+                .aggregateCount(aggregateCount)
                 .isRead(false)
+                .lastEventAt(now)
                 .build();
+    }
+
+    // The merged message is "<count>" followed by this, e.g. "5 people requested your book 'Dune'"
+    private static String coalescedSuffix(NotificationOutbox latest) {
+        String title = latest.getRelatedBookTitle() != null ? " '" + latest.getRelatedBookTitle() + "'" : "";
+        return " people requested your book" + title;
+    }
 
-        notificationRepository.save(notification);
+    private static int aggregateCountOf(Notification notification) {
+        return notification.getAggregateCount() != null ? notification.getAggregateCount() : 1;
     }
 
-    // Get all notifications for current user
+    // One page of the current user's notifications, newest first
     @Transactional(readOnly = true)
-    public List<NotificationResponseDTO> getNotificationsForUser(User currentUser) {
-        List<Notification> notifications = notificationRepository.findByUserOrderByCreatedAtDesc(currentUser);
-        return notifications.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    public CursorPage<NotificationResponseDTO> getNotificationsForUser(User currentUser, String cursor, Integer limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+
+        List<Notification> notifications = notificationRepository.findPageByUserId(
+                currentUser.getId(), position.createdAt(), position.id(), Limit.of(pageSize));
+        return CursorPage.of(notifications, pageSize,
+                notification -> new PageCursor(notification.getCreatedAt(), notification.getId()), this::mapToDTO);
     }
 
-    // Get unread count for current user
+    // Get unread count for current user, answered from the in-memory counters
     @Transactional(readOnly = true)
     public Long getUnreadCount(User currentUser) {
-        return notificationRepository.countByUserAndIsReadFalse(currentUser);
+        return unreadCounts.get(currentUser.getId());
     }
 
-    // Mark a single notification as read
+    // Mark a single notification as read with one conditional UPDATE; the row is only
+    // loaded afterwards to build the response
     public NotificationResponseDTO markAsRead(Long notificationId, User currentUser) {
+        int updated = notificationRepository.markReadByIdAndUserId(notificationId, currentUser.getId(), LocalDateTime.now());
+
         Notification notification = notificationRepository.findById(notificationId)
                 .orElseThrow(() -> new EntityNotFoundException("Notification not found with id: " + notificationId));
 
@@ -65,24 +176,19 @@ public class NotificationService {
             throw new AccessDeniedException("You are not authorized to update this notification.");
         }
 
-        notification.setIsRead(true);
-        notification.setReadAt(LocalDateTime.now());
-        notificationRepository.save(notification);
-
+        if (updated > 0) {
+            eventPublisher.publishEvent(new NotificationsReadEvent(currentUser.getId(), updated));
+        }
         return mapToDTO(notification);
     }
 
-    // Mark all notifications as read for current user
-    public void markAllAsRead(User currentUser) {
-        List<Notification> unreadNotifications = notificationRepository.findByUserAndIsReadFalse(currentUser);
-        LocalDateTime now = LocalDateTime.now();
-
-        unreadNotifications.forEach(notification -> {
-            notification.setIsRead(true);
-            notification.setReadAt(now);
-        });
-
-        notificationRepository.saveAll(unreadNotifications);
+    // Mark all notifications as read for current user in a single statement, returning how many changed
+    public int markAllAsRead(User currentUser) {
+        int updated = notificationRepository.markAllReadByUserId(currentUser.getId(), LocalDateTime.now());
+        if (updated > 0) {
+            eventPublisher.publishEvent(new NotificationsReadEvent(currentUser.getId(), updated));
+        }
+        return updated;
     }
 
     // Map entity to DTO
@@ -93,8 +199,10 @@ public class NotificationService {
                 .message(notification.getMessage())
                 .relatedSwapRequestId(notification.getRelatedSwapRequestId())
                 .relatedBookId(notification.getRelatedBookId())
+                .aggregateCount(aggregateCountOf(notification))
                 .isRead(notification.getIsRead())
                 .createdAt(notification.getCreatedAt())
+                .lastEventAt(notification.getLastEventAt() != null ? notification.getLastEventAt() : notification.getCreatedAt())
                 .readAt(notification.getReadAt())
                 .build();
     }
@@ -0,0 +1,258 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.event.NotificationCreatedEvent;
+import com.bookswap.bookswap.event.NotificationsReadEvent;
+import com.bookswap.bookswap.event.UnreadCountChangedEvent;
+import com.bookswap.bookswap.model.User;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open notification streams (Server-Sent Events) per user. New notifications and unread-count
+ * changes are pushed to a user's streams after commit; an idle user costs a parked connection
+ * and a heartbeat, not a query.
+ *
+ * Each stream has a bounded buffer drained by at most one sender at a time, so a slow client never
+ * blocks the publisher. When a buffer overflows it is replaced by a single "resync" event telling the
+ * client to refetch. Senders don't share a fixed set of threads, so a client that stops reading only
+ * stalls its own stream, and a send that is still blocked after {@code send-timeout-ms} gets the
+ * stream closed and evicted.
+ */
+@Component
+@Slf4j
+public class NotificationStreamRegistry {
+
+    public record StreamEvent(String name, Object data) {
+
+        SseEmitter.SseEventBuilder toSse() {
+            return name == null
+                    ? SseEmitter.event().comment("heartbeat")
+                    : SseEmitter.event().name(name).data(data);
+        }
+    }
+
+    static final StreamEvent HEARTBEAT = new StreamEvent(null, null);
+    static final StreamEvent RESYNC = new StreamEvent("resync", Map.of());
+
+    @FunctionalInterface
+    interface EventSink {
+        void send(StreamEvent event) throws IOException;
+    }
+
+    static final class Subscriber {
+        private final Long userId;
+        private final EventSink sink;
+        private final Runnable close;
+        private final ArrayBlockingQueue<StreamEvent> buffer;
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        // When the send in progress started, 0 while none is
+        private volatile long sendStartedAt;
+
+        Subscriber(Long userId, EventSink sink, Runnable close, int bufferSize) {
+            this.userId = userId;
+            this.sink = sink;
+            this.close = close;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private synchronized void offer(StreamEvent event) {
+            if (!buffer.offer(event)) {
+                buffer.clear();
+                buffer.offer(RESYNC);
+            }
+        }
+    }
+
+    private final UnreadCountTracker unreadCounts;
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final int maxStreamsPerUser;
+    private final long sendTimeoutMillis;
+
+    private final Map<Long, Deque<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+
+    public NotificationStreamRegistry(UnreadCountTracker unreadCounts,
+                                      @Value("${notifications.stream.timeout-ms:1800000}") long timeoutMillis,
+                                      @Value("${notifications.stream.buffer-size:64}") int bufferSize,
+                                      @Value("${notifications.stream.max-per-user:5}") int maxStreamsPerUser,
+                                      @Value("${notifications.stream.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.unreadCounts = unreadCounts;
+        this.timeoutMillis = timeoutMillis;
+        this.bufferSize = bufferSize;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+
+        // Threads are only held while a send is in progress; idle ones are reclaimed after a minute
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "notification-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Opens a stream for the user and starts it with their current unread count
+    public SseEmitter subscribe(User user) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = register(user.getId(), event -> emitter.send(event.toSse()), emitter::complete);
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(error -> unregister(subscriber));
+
+        publishUnreadCount(user.getId());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationCreated(NotificationCreatedEvent event) {
+        if (subscribers.containsKey(event.userId())) {
+            publish(event.userId(), new StreamEvent("notification", event.notification()));
+            publishUnreadCount(event.userId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsRead(NotificationsReadEvent event) {
+        if (subscribers.containsKey(event.userId())) {
+            publishUnreadCount(event.userId());
+        }
+    }
+
+    @EventListener
+    public void onUnreadCountChanged(UnreadCountChangedEvent event) {
+        publish(event.userId(), new StreamEvent("unread-count", Map.of("count", event.count())));
+    }
+
+    // Keeps idle connections open through proxies and detects clients that went away
+    @Scheduled(fixedDelayString = "${notifications.stream.heartbeat-ms:20000}")
+    public void sendHeartbeats() {
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> enqueue(subscriber, HEARTBEAT)));
+    }
+
+    // Closes streams whose client has stopped reading, so they don't stay registered and buffered forever
+    @Scheduled(fixedDelayString = "${notifications.stream.send-timeout-ms:10000}")
+    public void evictStalledStreams() {
+        long stalledSince = System.currentTimeMillis() - sendTimeoutMillis;
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> {
+            long startedAt = subscriber.sendStartedAt;
+            if (startedAt != 0 && startedAt < stalledSince) {
+                log.debug("Closing notification stream for user {}: send blocked for over {} ms", subscriber.userId, sendTimeoutMillis);
+                unregister(subscriber);
+                subscriber.close.run();
+                subscriber.buffer.clear();
+            }
+        }));
+    }
+
+    public int streamCount() {
+        return subscribers.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> subscriber.close.run()));
+        sender.shutdownNow();
+    }
+
+    Subscriber register(Long userId, EventSink sink, Runnable close) {
+        Subscriber subscriber = new Subscriber(userId, sink, close, bufferSize);
+        List<Subscriber> dropped = new ArrayList<>();
+        // Added inside compute so a concurrent unregister can't remove the deque between lookup and add
+        subscribers.compute(userId, (id, streams) -> {
+            if (streams == null) {
+                streams = new ConcurrentLinkedDeque<>();
+            }
+            streams.addLast(subscriber);
+            // Too many tabs or leaked connections: drop the oldest stream
+            while (streams.size() > maxStreamsPerUser) {
+                dropped.add(streams.pollFirst());
+            }
+            return streams;
+        });
+        // Closed outside compute, as closing may call back into unregister for the same user
+        dropped.forEach(oldest -> oldest.close.run());
+        return subscriber;
+    }
+
+    void publish(Long userId, StreamEvent event) {
+        Deque<Subscriber> streams = subscribers.get(userId);
+        if (streams != null) {
+            streams.forEach(subscriber -> enqueue(subscriber, event));
+        }
+    }
+
+    private void publishUnreadCount(Long userId) {
+        long count = unreadCounts.get(userId);
+        publish(userId, new StreamEvent("unread-count", Map.of("count", count)));
+    }
+
+    private void unregister(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, streams) -> {
+            streams.remove(subscriber);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    private void enqueue(Subscriber subscriber, StreamEvent event) {
+        subscriber.offer(event);
+        scheduleFlush(subscriber);
+    }
+
+    private void scheduleFlush(Subscriber subscriber) {
+        if (subscriber.flushScheduled.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> flush(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void flush(Subscriber subscriber) {
+        try {
+            StreamEvent event;
+            while ((event = subscriber.buffer.poll()) != null) {
+                subscriber.sendStartedAt = System.currentTimeMillis();
+                try {
+                    subscriber.sink.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // The client is gone or the emitter already completed
+                    log.debug("Closing notification stream for user {}: {}", subscriber.userId, e.getMessage());
+                    unregister(subscriber);
+                    subscriber.close.run();
+                    subscriber.buffer.clear();
+                    return;
+                } finally {
+                    subscriber.sendStartedAt = 0;
+                }
+            }
+        } finally {
+            subscriber.flushScheduled.set(false);
+        }
+        // An event may have arrived between the last poll and clearing the flag
+        if (!subscriber.buffer.isEmpty()) {
+            scheduleFlush(subscriber);
+        }
+    }
+}
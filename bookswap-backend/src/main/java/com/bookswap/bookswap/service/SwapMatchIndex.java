@@ -0,0 +1,316 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.event.SwapRequestChangedEvent;
+import com.bookswap.bookswap.event.SwapRequestsChangedEvent;
+import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.repository.projection.SwapRequestEdgeView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory directed graph of PENDING swap requests: each request is an edge from the requester to the
+ * owner of the requested book. A short cycle through a user is a ring in which everybody gives one book
+ * and gets one (A wants B's book, B wants C's, C wants A's), so cycles of 2 to 4 users are suggested swaps.
+ *
+ * Users are mapped to dense node numbers and adjacency lives in int arrays that are updated in place as
+ * requests are created and resolved; the graph is only loaded in full at startup. Like the geo index this
+ * is a candidate filter: {@link SwapMatchService} re-reads the requests of every ring it returns.
+ */
+@Component
+@Slf4j
+public class SwapMatchIndex {
+
+    // A ring starting at the queried user; hops[i] holds every pending request from the i-th user to the next,
+    // the latest added first, so a caller can fall back to another request when one no longer fits
+    public record Cycle(long[][] hops) {
+
+        // One request per hop, the latest added
+        public long[] requestIds() {
+            long[] requestIds = new long[hops.length];
+            for (int i = 0; i < hops.length; i++) {
+                requestIds[i] = hops[i][0];
+            }
+            return requestIds;
+        }
+    }
+
+    private final SwapRequestRepository swapRequestRepository;
+    private final int maxExpansions;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> nodeByUserId = new HashMap<>();
+    private int[][] out = new int[1024][];
+    private int[] outSize = new int[1024];
+    private int[][] in = new int[1024][];
+    private int[] inSize = new int[1024];
+    private int nodeCount;
+
+    // Edge (from, to) -> ids of the pending requests behind it, count in slot 0; an edge exists while it has any
+    private final Map<Long, long[]> requestsByEdge = new HashMap<>();
+    private final Map<Long, Long> edgeByRequestId = new HashMap<>();
+
+    public SwapMatchIndex(SwapRequestRepository swapRequestRepository,
+                          @Value("${swap.matching.max-expansions:200000}") int maxExpansions) {
+        this.swapRequestRepository = swapRequestRepository;
+        this.maxExpansions = maxExpansions;
+    }
+
+    // Load every PENDING request once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<SwapRequestEdgeView> edges = swapRequestRepository.findEdgesByStatus(SwapRequestStatus.PENDING);
+        lock.writeLock().lock();
+        try {
+            for (SwapRequestEdgeView edge : edges) {
+                addEdge(edge.getId(), edge.getRequesterId(), edge.getOwnerId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Swap match index built with {} pending requests between {} users", edgeByRequestId.size(), nodeCount);
+    }
+
+    // Keep the graph in sync with committed swap changes: pending requests are edges, anything else is not
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSwapRequestChanged(SwapRequestChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSwapRequestsChanged(SwapRequestsChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.changes().forEach(this::apply);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(long requestId, long requesterId, long ownerId) {
+        lock.writeLock().lock();
+        try {
+            addEdge(requestId, requesterId, ownerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long requestId) {
+        lock.writeLock().lock();
+        try {
+            removeEdge(requestId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} rings through the user, shortest first. Two-user rings are mutual requests,
+     * three-user rings close with a request for the user's book, and four-user rings are found by meeting
+     * in the middle: two steps forward from the user against two steps back, so the work grows with the
+     * square of the degrees instead of the cube. The search stops after {@code maxExpansions} edge visits.
+     */
+    public List<Cycle> cyclesFor(long userId, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer start = nodeByUserId.get(userId);
+            if (start == null || limit <= 0) {
+                return List.of();
+            }
+            int s = start;
+            List<Cycle> cycles = new ArrayList<>();
+            int expansions = 0;
+
+            // Users who requested one of s's books
+            BitSet oneBack = new BitSet(nodeCount);
+            for (int i = 0; i < inSize[s]; i++) {
+                oneBack.set(in[s][i]);
+            }
+
+            for (int i = 0; i < outSize[s] && cycles.size() < limit; i++) {
+                int a = out[s][i];
+                if (oneBack.get(a)) {
+                    cycles.add(cycle(s, a));
+                }
+            }
+
+            for (int i = 0; i < outSize[s] && cycles.size() < limit && expansions < maxExpansions; i++) {
+                int a = out[s][i];
+                for (int j = 0; j < outSize[a] && cycles.size() < limit; j++, expansions++) {
+                    int b = out[a][j];
+                    if (b != s && oneBack.get(b)) {
+                        cycles.add(cycle(s, a, b));
+                    }
+                }
+            }
+
+            if (cycles.size() < limit && expansions < maxExpansions) {
+                // b -> the users c with b -> c -> s, count in slot 0
+                Map<Integer, int[]> twoBack = new HashMap<>();
+                for (int i = 0; i < inSize[s] && expansions < maxExpansions; i++) {
+                    int c = in[s][i];
+                    for (int j = 0; j < inSize[c]; j++, expansions++) {
+                        int b = in[c][j];
+                        if (b != s) {
+                            int[] closing = twoBack.getOrDefault(b, new int[4]);
+                            closing = append(closing, closing[0] + 1, c);
+                            closing[0]++;
+                            twoBack.put(b, closing);
+                        }
+                    }
+                }
+                for (int i = 0; i < outSize[s] && cycles.size() < limit && expansions < maxExpansions; i++) {
+                    int a = out[s][i];
+                    for (int j = 0; j < outSize[a] && cycles.size() < limit; j++, expansions++) {
+                        int b = out[a][j];
+                        int[] closing = b != s ? twoBack.get(b) : null;
+                        for (int k = 1; closing != null && k <= closing[0] && cycles.size() < limit; k++) {
+                            if (closing[k] != a) {
+                                cycles.add(cycle(s, a, b, closing[k]));
+                            }
+                        }
+                    }
+                }
+            }
+            return cycles;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of pending requests in the graph
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return edgeByRequestId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(SwapRequestChangedEvent event) {
+        if (event.status() == SwapRequestStatus.PENDING) {
+            addEdge(event.swapRequestId(), event.requesterId(), event.ownerId());
+        } else {
+            removeEdge(event.swapRequestId());
+        }
+    }
+
+    private void addEdge(long requestId, long requesterId, long ownerId) {
+        if (edgeByRequestId.containsKey(requestId)) {
+            return;
+        }
+        int from = node(requesterId);
+        int to = node(ownerId);
+        long key = edgeKey(from, to);
+        long[] requests = requestsByEdge.get(key);
+        if (requests == null) {
+            requests = new long[4];
+            out[from] = append(out[from], outSize[from]++, to);
+            in[to] = append(in[to], inSize[to]++, from);
+        } else if (requests[0] + 1 == requests.length) {
+            requests = Arrays.copyOf(requests, requests.length * 2);
+        }
+        requests[(int) ++requests[0]] = requestId;
+        requestsByEdge.put(key, requests);
+        edgeByRequestId.put(requestId, key);
+    }
+
+    private void removeEdge(long requestId) {
+        Long key = edgeByRequestId.remove(requestId);
+        if (key == null) {
+            return;
+        }
+        long[] requests = requestsByEdge.get(key);
+        int count = (int) requests[0];
+        for (int i = 1; i <= count; i++) {
+            if (requests[i] == requestId) {
+                requests[i] = requests[count];
+                requests[0]--;
+                break;
+            }
+        }
+        if (requests[0] == 0) {
+            requestsByEdge.remove(key);
+            int from = (int) (key >>> 32);
+            int to = (int) (long) key;
+            outSize[from] = unlink(out[from], outSize[from], to);
+            inSize[to] = unlink(in[to], inSize[to], from);
+        }
+    }
+
+    // Nodes are never freed: a user who has had a pending request is likely to have another
+    private int node(long userId) {
+        Integer existing = nodeByUserId.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int node = nodeCount++;
+        if (node == out.length) {
+            int capacity = out.length * 2;
+            out = Arrays.copyOf(out, capacity);
+            outSize = Arrays.copyOf(outSize, capacity);
+            in = Arrays.copyOf(in, capacity);
+            inSize = Arrays.copyOf(inSize, capacity);
+        }
+        nodeByUserId.put(userId, node);
+        return node;
+    }
+
+    // Copies the requests of each hop, so the cycle stays valid after the read lock is released
+    private Cycle cycle(int... nodes) {
+        long[][] hops = new long[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            long[] requests = requestsByEdge.get(edgeKey(nodes[i], nodes[(i + 1) % nodes.length]));
+            int count = (int) requests[0];
+            hops[i] = new long[count];
+            for (int k = 0; k < count; k++) {
+                hops[i][k] = requests[count - k];
+            }
+        }
+        return new Cycle(hops);
+    }
+
+    private static long edgeKey(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    private static int[] append(int[] list, int size, int value) {
+        if (list == null) {
+            list = new int[4];
+        } else if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+        }
+        list[size] = value;
+        return list;
+    }
+
+    // Swap-remove; order of neighbours doesn't matter. Returns the new size.
+    private static int unlink(int[] list, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (list[i] == value) {
+                list[i] = list[size - 1];
+                return size - 1;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,95 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.dto.SwapMatchDTO;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.repository.projection.SwapMatchHopView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class SwapMatchService {
+
+    private final SwapMatchIndex swapMatchIndex;
+    private final SwapRequestRepository swapRequestRepository;
+
+    @Value("${swap.matching.max-suggestions:20}")
+    private int maxSuggestions;
+
+    // Rings found in the index, shortest first. Their requests are re-read in one query. Each hop uses the
+    // first of its requests that is still pending for an available book; a ring with a hop that has none
+    // is dropped, and requests that are no longer pending are removed from the index.
+    @Transactional(readOnly = true)
+    public List<SwapMatchDTO> getSuggestedMatches(User user) {
+        List<SwapMatchIndex.Cycle> cycles = swapMatchIndex.cyclesFor(user.getId(), maxSuggestions);
+        if (cycles.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> requestIds = new HashSet<>();
+        for (SwapMatchIndex.Cycle cycle : cycles) {
+            for (long[] hop : cycle.hops()) {
+                for (long requestId : hop) {
+                    requestIds.add(requestId);
+                }
+            }
+        }
+        Map<Long, SwapMatchHopView> hops = swapRequestRepository.findMatchHopsByIdIn(requestIds).stream()
+                .collect(Collectors.toMap(SwapMatchHopView::getId, Function.identity()));
+        for (Long requestId : requestIds) {
+            SwapMatchHopView hop = hops.get(requestId);
+            if (hop == null || hop.getStatus() != SwapRequestStatus.PENDING) {
+                swapMatchIndex.remove(requestId);
+            }
+        }
+
+        List<SwapMatchDTO> matches = new ArrayList<>(cycles.size());
+        for (SwapMatchIndex.Cycle cycle : cycles) {
+            List<SwapMatchDTO.Hop> ring = new ArrayList<>(cycle.hops().length);
+            for (long[] requestIdsOnHop : cycle.hops()) {
+                SwapMatchHopView usable = null;
+                for (long requestId : requestIdsOnHop) {
+                    SwapMatchHopView hop = hops.get(requestId);
+                    if (hop != null && hop.getStatus() == SwapRequestStatus.PENDING && hop.getBookStatus() == BookStatus.AVAILABLE) {
+                        usable = hop;
+                        break;
+                    }
+                }
+                if (usable == null) {
+                    ring = null;
+                    break;
+                }
+                ring.add(mapHop(usable));
+            }
+            if (ring != null) {
+                matches.add(SwapMatchDTO.builder().size(ring.size()).hops(ring).build());
+            }
+        }
+        return matches;
+    }
+
+    private static SwapMatchDTO.Hop mapHop(SwapMatchHopView hop) {
+        return SwapMatchDTO.Hop.builder()
+                .requestId(hop.getId())
+                .bookId(hop.getBookId())
+                .bookTitle(hop.getBookTitle())
+                .bookPhotoUrl(BookService.photoUrlOf(hop.getBookPhotoUrl()))
+                .requesterId(hop.getRequesterId())
+                .requesterName(hop.getRequesterName())
+                .ownerId(hop.getOwnerId())
+                .ownerName(hop.getOwnerName())
+                .build();
+    }
+}
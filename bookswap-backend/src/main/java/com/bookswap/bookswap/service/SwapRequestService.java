@@ -1,21 +1,50 @@
 package com.bookswap.bookswap.service;
 
+import com.bookswap.bookswap.config.PendingRequestIndexInitializer;
 import com.bookswap.bookswap.dto.BookResponseDTO;
+import com.bookswap.bookswap.dto.BulkSwapRequestResultDTO;
+import com.bookswap.bookswap.dto.BulkSwapRequestUpdateDTO;
+import com.bookswap.bookswap.dto.CursorPage;
 import com.bookswap.bookswap.dto.SwapRequestResponseDTO;
 import com.bookswap.bookswap.enums.BookStatus;
 import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.event.BookChangedEvent;
+import com.bookswap.bookswap.event.SwapRequestChangedEvent;
+import com.bookswap.bookswap.event.SwapRequestsChangedEvent;
 import com.bookswap.bookswap.model.Book;
 import com.bookswap.bookswap.model.SwapRequest;
 import com.bookswap.bookswap.model.User;
 import com.bookswap.bookswap.repository.BookRepository;
 import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.repository.projection.SwapRequestListingView;
+import com.bookswap.bookswap.util.HaversineUtil;
+import com.bookswap.bookswap.util.PageCursor;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,7 +55,11 @@ public class SwapRequestService {
     private final SwapRequestRepository swapRequestRepository;
     private final BookRepository bookRepository;
     private final BookService bookService;
-    private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${swap.status-update.max-attempts:3}")
+    private int maxStatusUpdateAttempts;
 
     public SwapRequestResponseDTO createSwapRequest(Long bookId, User requester) {
         Book book = bookRepository.findById(bookId)
@@ -39,9 +72,6 @@ public class SwapRequestService {
         if (book.getStatus() != BookStatus.AVAILABLE) {
             throw new IllegalStateException("This book is not available for swapping.");
         }
-        swapRequestRepository.findByBookAndRequesterAndStatus(book, requester, SwapRequestStatus.PENDING)
-                .ifPresent(req -> { throw new IllegalStateException("You already have a pending request for this book."); });
-
         SwapRequest swapRequest = SwapRequest.builder()
                 .book(book)
                 .requester(requester)
@@ -49,21 +79,57 @@ public class SwapRequestService {
                 .status(SwapRequestStatus.PENDING)
                 .build();
 
-        SwapRequest savedRequest = swapRequestRepository.save(swapRequest);
+        // Insert first: a second pending request from the same requester for the same book is rejected by
+        // the partial unique index on (book, requester), which also covers two submits racing each other.
+        // Other users can still request the book.
+        SwapRequest savedRequest;
+        try {
+            savedRequest = swapRequestRepository.saveAndFlush(swapRequest);
+        } catch (DataIntegrityViolationException e) {
+            if (isPendingRequestConflict(e)) {
+                throw new IllegalStateException("You already have a pending request for this book.");
+            }
+            throw e;
+        }
 
-        // Create notification for book owner
-        notificationService.createNotification(
-                book.getOwner().getId(),
-                "NEW_REQUEST",
-                requester.getName() + " requested your book '" + book.getTitle() + "'",
-                savedRequest.getId(),
-                book.getId()
-        );
+        // The book owner is notified through the outbox once this transaction commits
+        eventPublisher.publishEvent(SwapRequestChangedEvent.of(savedRequest));
 
         return mapToSwapRequestResponseDTO(savedRequest);
     }
 
+    // Each attempt runs in its own transaction. Book and SwapRequest are versioned, so when two accepts
+    // for the same book race, the loser's commit fails its optimistic check; the retry re-reads and
+    // re-validates, and then finds the book taken instead of overwriting the winner.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SwapRequestResponseDTO updateSwapRequestStatus(Long requestId, SwapRequestStatus newStatus, User currentUser) {
+        return withOptimisticRetry(() -> applyStatusChange(requestId, newStatus, currentUser));
+    }
+
+    // Applies a batch of accept/decline decisions in one transaction, retried as a whole like the single
+    // update. Items that can't be applied are reported in their result instead of failing the batch.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BulkSwapRequestResultDTO> updateSwapRequestStatuses(List<BulkSwapRequestUpdateDTO.Item> items, User currentUser) {
+        return withOptimisticRetry(() -> applyBulkStatusChange(items, currentUser));
+    }
+
+    private <T> T withOptimisticRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxStatusUpdateAttempts) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "This request was changed at the same time, please try again.");
+                }
+            }
+        }
+    }
+
+    private SwapRequestResponseDTO applyStatusChange(Long requestId, SwapRequestStatus newStatus, User currentUser) {
+        // Same rule as the bulk update: the owner decides, anything else (e.g. cancelling) is not theirs to set
+        if (newStatus != SwapRequestStatus.ACCEPTED && newStatus != SwapRequestStatus.DECLINED) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Requests can only be accepted or declined.");
+        }
         SwapRequest request = swapRequestRepository.findById(requestId)
                 .orElseThrow(() -> new EntityNotFoundException("Swap Request not found with id: " + requestId));
 
@@ -71,54 +137,224 @@ public class SwapRequestService {
         if (!request.getOwner().getId().equals(currentUser.getId())) {
             throw new AccessDeniedException("You are not authorized to update this request.");
         }
+        // Usually means another accept or decline won the race: a conflict, like running out of retries
+        if (request.getStatus() != SwapRequestStatus.PENDING) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "This request is no longer pending.");
+        }
 
-        // Business Logic: If accepted, mark the book as unavailable
+        // Business Logic: If accepted, mark the book as unavailable and decline everyone else
         if (newStatus == SwapRequestStatus.ACCEPTED) {
             Book book = request.getBook();
+            if (book.getStatus() != BookStatus.AVAILABLE) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "This book is not available for swapping.");
+            }
             book.setStatus(BookStatus.LENT_OUT);
             bookRepository.save(book);
-
-            // Notify requester that their request was accepted
-            notificationService.createNotification(
-                    request.getRequester().getId(),
-                    "REQUEST_ACCEPTED",
-                    request.getOwner().getName() + " accepted your request for '" + request.getBook().getTitle() + "'",
-                    request.getId(),
-                    request.getBook().getId()
-            );
-        } else if (newStatus == SwapRequestStatus.DECLINED) {
-            // Notify requester that their request was declined
-            notificationService.createNotification(
-                    request.getRequester().getId(),
-                    "REQUEST_DECLINED",
-                    request.getOwner().getName() + " declined your request for '" + request.getBook().getTitle() + "'",
-                    request.getId(),
-                    request.getBook().getId()
-            );
+            eventPublisher.publishEvent(BookChangedEvent.saved(book));
+            declineOtherPendingRequests(request);
         }
 
         request.setStatus(newStatus);
-        return mapToSwapRequestResponseDTO(swapRequestRepository.save(request));
+        SwapRequest savedRequest = swapRequestRepository.save(request);
+        // The requester is notified of acceptance or decline through the outbox once this transaction commits
+        eventPublisher.publishEvent(SwapRequestChangedEvent.of(savedRequest));
+        return mapToSwapRequestResponseDTO(savedRequest);
+    }
+
+    // Declines the book's other pending requests with one UPDATE; their requesters are notified through
+    // the outbox, which delivers the whole set in one batch after commit
+    private void declineOtherPendingRequests(SwapRequest accepted) {
+        List<SwapRequest> others = swapRequestRepository.findByBookIdAndStatusAndIdNot(
+                accepted.getBook().getId(), SwapRequestStatus.PENDING, accepted.getId());
+        if (others.isEmpty()) {
+            return;
+        }
+        transition(others, SwapRequestStatus.DECLINED);
+        eventPublisher.publishEvent(new SwapRequestsChangedEvent(
+                others.stream().map(other -> SwapRequestChangedEvent.of(other, SwapRequestStatus.DECLINED)).toList()));
+    }
+
+    private List<BulkSwapRequestResultDTO> applyBulkStatusChange(List<BulkSwapRequestUpdateDTO.Item> items, User currentUser) {
+        // One query loads every listed request the caller owns; anything missing is not theirs (or doesn't exist)
+        Set<Long> ids = items.stream().map(BulkSwapRequestUpdateDTO.Item::getRequestId).collect(Collectors.toSet());
+        Map<Long, SwapRequest> owned = swapRequestRepository.findByIdInAndOwnerId(ids, currentUser.getId()).stream()
+                .collect(Collectors.toMap(SwapRequest::getId, Function.identity()));
+
+        String[] errors = new String[items.size()];
+        Set<Long> seen = new HashSet<>();
+        Map<Long, SwapRequest> accepted = new LinkedHashMap<>();
+        Map<Long, SwapRequest> declined = new LinkedHashMap<>();
+        Map<Long, Book> acceptedBooks = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkSwapRequestUpdateDTO.Item item = items.get(i);
+            SwapRequest request = owned.get(item.getRequestId());
+            if (!seen.add(item.getRequestId())) {
+                errors[i] = "This request is listed more than once.";
+            } else if (request == null) {
+                errors[i] = "Swap Request not found with id: " + item.getRequestId();
+            } else if (request.getStatus() != SwapRequestStatus.PENDING) {
+                errors[i] = "This request is no longer pending.";
+            } else if (item.getStatus() == SwapRequestStatus.ACCEPTED) {
+                Book book = request.getBook();
+                if (book.getStatus() != BookStatus.AVAILABLE) {
+                    errors[i] = "This book is not available for swapping.";
+                } else if (acceptedBooks.putIfAbsent(book.getId(), book) != null) {
+                    errors[i] = "Another request for this book is accepted in the same batch.";
+                } else {
+                    accepted.put(request.getId(), request);
+                }
+            } else if (item.getStatus() == SwapRequestStatus.DECLINED) {
+                declined.put(request.getId(), request);
+            } else {
+                errors[i] = "Requests can only be accepted or declined.";
+            }
+        }
+
+        // Books go through their versioned entities, so a concurrent accept elsewhere fails this attempt
+        for (Book book : acceptedBooks.values()) {
+            book.setStatus(BookStatus.LENT_OUT);
+            eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        }
+        bookRepository.saveAll(acceptedBooks.values());
+
+        // The remaining pending requests for accepted books are declined along with the explicit declines,
+        // including listed ones whose own item was rejected (e.g. a second accept for the same book)
+        Set<Long> swept = new HashSet<>();
+        if (!acceptedBooks.isEmpty()) {
+            for (SwapRequest other : swapRequestRepository.findByBookIdInAndStatus(acceptedBooks.keySet(), SwapRequestStatus.PENDING)) {
+                if (!accepted.containsKey(other.getId()) && declined.putIfAbsent(other.getId(), other) == null) {
+                    swept.add(other.getId());
+                }
+            }
+        }
+
+        // One UPDATE per target status; the outbox rows for all of them are written as one batch
+        transition(accepted.values(), SwapRequestStatus.ACCEPTED);
+        transition(declined.values(), SwapRequestStatus.DECLINED);
+        List<SwapRequestChangedEvent> changes = new ArrayList<>();
+        accepted.values().forEach(request -> changes.add(SwapRequestChangedEvent.of(request, SwapRequestStatus.ACCEPTED)));
+        declined.values().forEach(request -> changes.add(SwapRequestChangedEvent.of(request, SwapRequestStatus.DECLINED)));
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new SwapRequestsChangedEvent(changes));
+        }
+
+        // Each result carries the status the request ended up in, which for a rejected item may still have changed
+        List<BulkSwapRequestResultDTO> results = new ArrayList<>(items.size());
+        Set<Long> reported = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            Long requestId = items.get(i).getRequestId();
+            SwapRequest request = owned.get(requestId);
+            String error = errors[i];
+            if (error != null && swept.contains(requestId) && !reported.contains(requestId)) {
+                error = "Declined because another request for this book was accepted.";
+            }
+            reported.add(requestId);
+            SwapRequestStatus status = accepted.containsKey(requestId) ? SwapRequestStatus.ACCEPTED
+                    : declined.containsKey(requestId) ? SwapRequestStatus.DECLINED
+                    : request != null ? request.getStatus() : null;
+            results.add(BulkSwapRequestResultDTO.builder()
+                    .requestId(requestId)
+                    .status(status)
+                    .applied(errors[i] == null)
+                    .error(error)
+                    .build());
+        }
+        return results;
     }
 
+    // Set-based status change for requests read as PENDING in this transaction
+    private void transition(Collection<SwapRequest> requests, SwapRequestStatus to) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        List<Long> ids = requests.stream().map(SwapRequest::getId).toList();
+        int changed = swapRequestRepository.transitionStatus(ids, SwapRequestStatus.PENDING, to, LocalDateTime.now());
+        if (changed != ids.size()) {
+            // One of them changed since it was read: start over with fresh state
+            throw new OptimisticLockingFailureException("Swap requests " + ids + " changed concurrently");
+        }
+    }
+
+    private static boolean isPendingRequestConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && message.toLowerCase(Locale.ROOT).contains(PendingRequestIndexInitializer.INDEX_NAME)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Listings are read as flat projections: one query per page, no entity or per-row lookups
     @Transactional(readOnly = true)
-    public List<SwapRequestResponseDTO> getOutgoingRequests(User requester) {
-        return swapRequestRepository.findByRequester(requester).stream()
-                .map(this::mapToSwapRequestResponseDTO)
-                .collect(Collectors.toList());
+    public CursorPage<SwapRequestResponseDTO> getOutgoingRequests(User requester, String cursor, Integer limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+
+        List<SwapRequestListingView> rows = swapRequestRepository.findListingPageByRequesterId(
+                requester.getId(), position.createdAt(), position.id(), Limit.of(pageSize));
+        return CursorPage.of(rows, pageSize, row -> new PageCursor(row.getCreatedAt(), row.getId()), SwapRequestService::mapListingRow);
     }
 
     @Transactional(readOnly = true)
-    public List<SwapRequestResponseDTO> getIncomingRequests(User owner) {
-        return swapRequestRepository.findByOwner(owner).stream()
-                .map(this::mapToSwapRequestResponseDTO)
-                .collect(Collectors.toList());
+    public CursorPage<SwapRequestResponseDTO> getIncomingRequests(User owner, String cursor, Integer limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+
+        List<SwapRequestListingView> rows = swapRequestRepository.findListingPageByOwnerId(
+                owner.getId(), position.createdAt(), position.id(), Limit.of(pageSize));
+        return CursorPage.of(rows, pageSize, row -> new PageCursor(row.getCreatedAt(), row.getId()), SwapRequestService::mapListingRow);
     }
 
-    private SwapRequestResponseDTO mapToSwapRequestResponseDTO(SwapRequest request) {
+    // Same shape as the entity mapping; distance is measured from the requester, as there
+    private static SwapRequestResponseDTO mapListingRow(SwapRequestListingView row) {
+        double distance = 0.0;
+        if (row.getRequesterLatitude() != null && row.getRequesterLongitude() != null
+                && row.getBookLatitude() != null && row.getBookLongitude() != null) {
+            distance = HaversineUtil.calculateDistance(row.getRequesterLatitude(), row.getRequesterLongitude(),
+                    row.getBookLatitude(), row.getBookLongitude());
+        }
+
+        BookResponseDTO book = BookResponseDTO.builder()
+                .id(row.getBookId())
+                .title(row.getBookTitle())
+                .author(row.getBookAuthor())
+                .genre(row.getBookGenre())
+                .language(row.getBookLanguage())
+                .bookCondition(row.getBookCondition())
+                .description(row.getBookDescription())
+                .photoUrl(BookService.photoUrlOf(row.getBookPhotoUrl()))
+                .exchangePreference(row.getBookExchangePreference())
+                .latitude(row.getBookLatitude())
+                .longitude(row.getBookLongitude())
+                .status(row.getBookStatus())
+                .ownerId(row.getOwnerId())
+                .ownerName(row.getOwnerName())
+                .createdAt(row.getBookCreatedAt())
+                .locationName(row.getBookLocationName())
+                .distanceKm(distance)
+                .requestCount(row.getBookPendingCount())
+                .build();
+
+        return SwapRequestResponseDTO.builder()
+                .id(row.getId())
+                .book(book)
+                .requesterId(row.getRequesterId())
+                .requesterName(row.getRequesterName())
+                .ownerId(row.getOwnerId())
+                .ownerName(row.getOwnerName())
+                .status(row.getStatus())
+                .createdAt(row.getCreatedAt())
+                .updatedAt(row.getUpdatedAt())
+                .build();
+    }
 
+    private SwapRequestResponseDTO mapToSwapRequestResponseDTO(SwapRequest request) {
         BookResponseDTO bookDTO = bookService.mapToBookResponseDTO(request.getBook(), request.getRequester());
+        return buildSwapRequestResponseDTO(request, bookDTO);
+    }
 
+    private SwapRequestResponseDTO buildSwapRequestResponseDTO(SwapRequest request, BookResponseDTO bookDTO) {
         return SwapRequestResponseDTO.builder()
                 .id(request.getId())
                 .book(bookDTO)
@@ -0,0 +1,151 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.event.NotificationCreatedEvent;
+import com.bookswap.bookswap.event.NotificationsReadEvent;
+import com.bookswap.bookswap.event.UnreadCountChangedEvent;
+import com.bookswap.bookswap.repository.NotificationRepository;
+import com.bookswap.bookswap.repository.projection.UserUnreadCountView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user unread notification counts held in memory, so the unread badge never has to query the
+ * notifications table. A user's counter is seeded from the database on first access and then moved
+ * by committed creates and reads.
+ *
+ * A counter can drift when a change commits while it is being seeded, or when rows are changed
+ * behind the service's back; a periodic reconciliation resets tracked counters to the table's value,
+ * skipping any that moved while it counted, and forgets users that have not asked for their count in a while.
+ */
+@Component
+@Slf4j
+public class UnreadCountTracker {
+
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    private static final class Entry {
+        final AtomicLong count;
+        volatile long lastAccess;
+
+        Entry(long count, long now) {
+            this.count = new AtomicLong(count);
+            this.lastAccess = now;
+        }
+    }
+
+    private record Snapshot(Long userId, Entry entry, long count) {
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long idleMillis;
+    private final Counter corrections;
+
+    private final Map<Long, Entry> counters = new ConcurrentHashMap<>();
+
+    public UnreadCountTracker(NotificationRepository notificationRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${notifications.unread.idle-eviction-ms:3600000}") long idleMillis,
+                              MeterRegistry meterRegistry) {
+        this.notificationRepository = notificationRepository;
+        this.eventPublisher = eventPublisher;
+        this.idleMillis = idleMillis;
+        this.corrections = Counter.builder("notifications.unread.reconcile.corrections").register(meterRegistry);
+        Gauge.builder("notifications.unread.tracked-users", counters, Map::size).register(meterRegistry);
+    }
+
+    public long get(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = counters.get(userId);
+        if (entry == null) {
+            // Seed outside the map's bin lock; if two callers race, the first one wins
+            long seeded = notificationRepository.countByUserIdAndIsReadFalse(userId);
+            entry = counters.computeIfAbsent(userId, id -> new Entry(seeded, now));
+        }
+        entry.lastAccess = now;
+        return entry.count.get();
+    }
+
+    // Runs ahead of the stream registry's listeners, which push the adjusted count
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationCreated(NotificationCreatedEvent event) {
+        // A merge updates a row that is already unread
+        if (!event.merged()) {
+            adjust(event.userId(), 1);
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsRead(NotificationsReadEvent event) {
+        if (event.markedRead() > 0) {
+            adjust(event.userId(), -event.markedRead());
+        }
+    }
+
+    // Reset tracked counters to the table's values and drop idle users
+    @Scheduled(fixedDelayString = "${notifications.unread.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long idleBefore = System.currentTimeMillis() - idleMillis;
+        counters.entrySet().removeIf(tracked -> tracked.getValue().lastAccess < idleBefore);
+
+        List<Long> userIds = new ArrayList<>(counters.keySet());
+        long corrected = 0;
+        for (int from = 0; from < userIds.size(); from += RECONCILE_BATCH_SIZE) {
+            List<Long> batch = userIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, userIds.size()));
+            // Snapshot before counting: a counter that moves while the query runs has seen a change
+            // the count may or may not include, so it is left for the next run
+            List<Snapshot> snapshots = new ArrayList<>();
+            for (Long userId : batch) {
+                Entry entry = counters.get(userId);
+                if (entry != null) {
+                    snapshots.add(new Snapshot(userId, entry, entry.count.get()));
+                }
+            }
+            Map<Long, Long> actual = new HashMap<>();
+            for (UserUnreadCountView view : notificationRepository.countUnreadByUserIds(batch)) {
+                actual.put(view.getUserId(), view.getCount());
+            }
+            for (Snapshot snapshot : snapshots) {
+                long expected = actual.getOrDefault(snapshot.userId(), 0L);
+                if (snapshot.count() != expected && snapshot.entry().count.compareAndSet(snapshot.count(), expected)) {
+                    corrected++;
+                    eventPublisher.publishEvent(new UnreadCountChangedEvent(snapshot.userId(), expected));
+                }
+            }
+        }
+        if (corrected > 0) {
+            corrections.increment(corrected);
+            log.info("Reconciled {} drifted unread counters out of {}", corrected, userIds.size());
+        }
+    }
+
+    public int trackedUsers() {
+        return counters.size();
+    }
+
+    // Untracked users are left alone: their next read seeds them from the committed table
+    private void adjust(Long userId, long delta) {
+        Entry entry = counters.get(userId);
+        if (entry != null) {
+            entry.count.updateAndGet(current -> Math.max(0, current + delta));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.UserRepository;
+import com.bookswap.bookswap.util.BoundedTtlCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short-lived cache of authenticated principals keyed by email, so a request carrying a valid JWT
+ * doesn't need a users-table round trip just to rebuild the same {@link User}.
+ *
+ * Entries are evicted when the user row is updated or deleted (see {@link UserPrincipalCacheListener});
+ * the TTL bounds staleness for anything that bypasses JPA.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final BoundedTtlCache<String, User> principals;
+
+    public UserPrincipalCache(UserRepository userRepository,
+                              @Value("${auth.principal-cache.max-size:10000}") int maxSize,
+                              @Value("${auth.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.principals = new BoundedTtlCache<>(maxSize, ttlSeconds * 1000);
+
+        FunctionCounter.builder("auth.principal-cache.hits", principals, BoundedTtlCache::hitCount).register(meterRegistry);
+        FunctionCounter.builder("auth.principal-cache.misses", principals, BoundedTtlCache::missCount).register(meterRegistry);
+        Gauge.builder("auth.principal-cache.size", principals, BoundedTtlCache::size).register(meterRegistry);
+    }
+
+    // Unknown emails are not cached, so a user who signs up is visible immediately
+    public User load(String email) {
+        User cached = principals.get(email);
+        if (cached != null) {
+            return cached;
+        }
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
+        principals.put(email, user);
+        return user;
+    }
+
+    public void evict(String email) {
+        principals.invalidate(email);
+    }
+}
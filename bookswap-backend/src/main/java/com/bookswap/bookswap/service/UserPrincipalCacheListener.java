@@ -0,0 +1,58 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.model.User;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// JPA entity listener that drops a user's cached principal whenever their row changes,
+// e.g. a new password hash or profile details
+public class UserPrincipalCacheListener {
+
+    private final ObjectProvider<UserPrincipalCache> userPrincipalCache;
+
+    public UserPrincipalCacheListener(ObjectProvider<UserPrincipalCache> userPrincipalCache) {
+        this.userPrincipalCache = userPrincipalCache;
+    }
+
+    @PostLoad
+    @PostPersist
+    public void onUserLoaded(User user) {
+        user.setPersistedEmail(user.getEmail());
+    }
+
+    // Evicting at flush time would let a concurrent request re-cache the old row before the commit,
+    // so the eviction runs once the transaction has committed; an email change evicts both keys
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        Set<String> emails = new HashSet<>();
+        if (user.getPersistedEmail() != null) {
+            emails.add(user.getPersistedEmail());
+        }
+        emails.add(user.getEmail());
+        user.setPersistedEmail(user.getEmail());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(emails);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(emails);
+            }
+        });
+    }
+
+    private void evict(Set<String> emails) {
+        userPrincipalCache.ifAvailable(cache -> emails.forEach(cache::evict));
+    }
+}
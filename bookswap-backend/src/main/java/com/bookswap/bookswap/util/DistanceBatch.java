@@ -0,0 +1,143 @@
+package com.bookswap.bookswap.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Scores a batch of points against one origin with the same Haversine formula as
+ * {@link HaversineUtil}. Points are kept in primitive arrays as radians together with the cosine
+ * of their latitude, so scoring a point costs two sines and an atan2, and points outside the
+ * radius's bounding box are rejected before any trigonometry.
+ *
+ * Points are addressed by the index returned from {@link #add}, so callers can map matches back
+ * to their own objects.
+ */
+public final class DistanceBatch {
+
+    // Slack on the bounding box so rounding can never reject a point the exact formula would keep
+    private static final double BOX_EPSILON = 1e-9;
+
+    public record Match(int index, double distanceKm) {
+    }
+
+    private double[] latRad;
+    private double[] lngRad;
+    private double[] cosLat;
+    private int size;
+
+    public DistanceBatch(int expectedSize) {
+        int capacity = Math.max(expectedSize, 8);
+        this.latRad = new double[capacity];
+        this.lngRad = new double[capacity];
+        this.cosLat = new double[capacity];
+    }
+
+    // Adds a point given in degrees and returns its index
+    public int add(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        return addRadians(lat, Math.toRadians(longitude), Math.cos(lat));
+    }
+
+    // Adds a point whose radians and cos(latitude) were precomputed by the caller
+    public int addRadians(double latitudeRad, double longitudeRad, double cosLatitude) {
+        if (size == latRad.length) {
+            int capacity = size * 2;
+            latRad = Arrays.copyOf(latRad, capacity);
+            lngRad = Arrays.copyOf(lngRad, capacity);
+            cosLat = Arrays.copyOf(cosLat, capacity);
+        }
+        latRad[size] = latitudeRad;
+        lngRad[size] = longitudeRad;
+        cosLat[size] = cosLatitude;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Distance in kilometers from the origin to every point, in index order
+    public double[] distancesFrom(double originLat, double originLng) {
+        double lat0 = Math.toRadians(originLat);
+        double lng0 = Math.toRadians(originLng);
+        double cos0 = Math.cos(lat0);
+        double[] distances = new double[size];
+        for (int i = 0; i < size; i++) {
+            distances[i] = haversine(lat0, lng0, cos0, i);
+        }
+        return distances;
+    }
+
+    /**
+     * Finds the points within {@code radiusKm} of the origin, in index order.
+     */
+    public List<Match> within(double originLat, double originLng, double radiusKm) {
+        List<Match> matches = new ArrayList<>();
+        scan(originLat, originLng, radiusKm, matches::add);
+        return matches;
+    }
+
+    /**
+     * Finds the {@code k} points nearest the origin within {@code radiusKm}, closest first.
+     * Ties are broken by index.
+     */
+    public List<Match> nearest(double originLat, double originLng, double radiusKm, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        Comparator<Match> closestFirst = Comparator.comparingDouble(Match::distanceKm).thenComparingInt(Match::index);
+        // Max-heap of the best k so far; the farthest kept match sits on top
+        PriorityQueue<Match> top = new PriorityQueue<>(k + 1, closestFirst.reversed());
+        scan(originLat, originLng, radiusKm, match -> {
+            top.offer(match);
+            if (top.size() > k) {
+                top.poll();
+            }
+        });
+        List<Match> sorted = new ArrayList<>(top);
+        sorted.sort(closestFirst);
+        return sorted;
+    }
+
+    private void scan(double originLat, double originLng, double radiusKm, Consumer<Match> sink) {
+        double lat0 = Math.toRadians(originLat);
+        double lng0 = Math.toRadians(originLng);
+        double cos0 = Math.cos(lat0);
+
+        // Angular radius, and the widest longitude difference a point on the circle can have.
+        // Near a pole (or for huge radii) the circle wraps around it and longitude can't be bounded.
+        double angular = radiusKm / HaversineUtil.EARTH_RADIUS_KM;
+        double maxDLat = angular + BOX_EPSILON;
+        double maxDLng = angular < Math.PI / 2 && Math.sin(angular) < cos0
+                ? Math.asin(Math.sin(angular) / cos0) + BOX_EPSILON
+                : Math.PI;
+
+        for (int i = 0; i < size; i++) {
+            if (Math.abs(latRad[i] - lat0) > maxDLat) {
+                continue;
+            }
+            double dLng = Math.abs(lngRad[i] - lng0);
+            if (dLng > Math.PI) {
+                dLng = 2 * Math.PI - dLng;
+            }
+            if (dLng > maxDLng) {
+                continue;
+            }
+            double distance = haversine(lat0, lng0, cos0, i);
+            if (distance <= radiusKm) {
+                sink.accept(new Match(i, distance));
+            }
+        }
+    }
+
+    private double haversine(double lat0, double lng0, double cos0, int i) {
+        double sinDLat = Math.sin((latRad[i] - lat0) / 2);
+        double sinDLng = Math.sin((lngRad[i] - lng0) / 2);
+        double a = sinDLat * sinDLat + cos0 * cosLat[i] * sinDLng * sinDLng;
+        return HaversineUtil.EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
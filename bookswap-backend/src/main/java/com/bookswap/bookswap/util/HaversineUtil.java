@@ -5,7 +5,7 @@ import org.springframework.stereotype.Component;
 @Component
 public class HaversineUtil {
 
-    private static final int EARTH_RADIUS_KM = 6371;
+    static final int EARTH_RADIUS_KM = 6371;
 
     /**
      * Calculates the distance in kilometers between two lat/lon points
@@ -0,0 +1,63 @@
+package com.bookswap.bookswap.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position for listings ordered by (createdAt DESC, id DESC).
+ * Clients only ever see it as an opaque token.
+ */
+public record PageCursor(LocalDateTime createdAt, Long id) {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    // Sorts after every real row, so the first page uses the same range scan as the following ones
+    private static final PageCursor START = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static PageCursor start() {
+        return START;
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}. A missing token means "first page".
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // True if a row with the given key comes after this cursor in (createdAt DESC, id DESC) order
+    public boolean precedes(LocalDateTime rowCreatedAt, Long rowId) {
+        if (rowCreatedAt == null) {
+            return false;
+        }
+        int cmp = rowCreatedAt.compareTo(createdAt);
+        return cmp < 0 || (cmp == 0 && rowId < id);
+    }
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,37 @@
+package com.bookswap.bookswap;
+
+import com.bookswap.bookswap.model.User;
+
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Builders and helpers shared by the integration tests
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    // A user named after their email's local part, e.g. "ann" for ann@example.com
+    public static User user(String email) {
+        return user(email, email.substring(0, email.indexOf('@')));
+    }
+
+    public static User user(String email, String name) {
+        return User.builder().name(name).email(email).password("hash").build();
+    }
+
+    // Polls until the condition holds, for work that completes on another thread
+    public static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
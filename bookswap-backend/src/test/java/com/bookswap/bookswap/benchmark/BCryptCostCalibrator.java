@@ -0,0 +1,54 @@
+package com.bookswap.bookswap.benchmark;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+/**
+ * Picks the highest BCrypt strength whose median hash time on this machine fits a latency budget,
+ * for auth.password-hash.strength. Run it on hardware like production's:
+ *
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.bookswap.bookswap.benchmark.BCryptCostCalibrator -Dexec.args="250"
+ *
+ * The argument is the budget in milliseconds (default 250).
+ */
+public final class BCryptCostCalibrator {
+
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_STRENGTH = 16;
+    private static final int SAMPLES = 5;
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static void main(String[] args) {
+        long budgetMillis = args.length > 0 ? Long.parseLong(args[0]) : 250;
+        int chosen = MIN_STRENGTH;
+
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            double medianMillis = medianHashMillis(strength);
+            System.out.printf("strength %2d: %8.1f ms%n", strength, medianMillis);
+            if (medianMillis > budgetMillis) {
+                break;
+            }
+            chosen = strength;
+        }
+
+        System.out.printf("Budget %d ms -> auth.password-hash.strength=%d%n", budgetMillis, chosen);
+    }
+
+    private static double medianHashMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode("warm-up-password");
+
+        double[] samples = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration-password-" + i);
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
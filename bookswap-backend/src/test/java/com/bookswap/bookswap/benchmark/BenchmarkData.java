@@ -0,0 +1,53 @@
+package com.bookswap.bookswap.benchmark;
+
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic sample data shared by the benchmarks
+final class BenchmarkData {
+
+    private static final String[] GENRES = {"Fiction", "Fantasy", "History", "Science", "Biography"};
+    private static final BookCondition[] CONDITIONS = BookCondition.values();
+
+    private BenchmarkData() {
+    }
+
+    static List<Book> books(int count) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User owner = User.builder()
+                    .id(1000L + i % 50)
+                    .name("Owner " + i % 50)
+                    .email("owner" + i % 50 + "@example.com")
+                    .password("x")
+                    .build();
+            books.add(Book.builder()
+                    .id((long) i + 1)
+                    .title("The Book Number " + i)
+                    .author("Author " + i % 200)
+                    .genre(GENRES[i % GENRES.length])
+                    .language(i % 3 == 0 ? "Sinhala" : "English")
+                    .bookCondition(CONDITIONS[i % CONDITIONS.length])
+                    .description("A description of book " + i + " long enough to look like a real blurb on a listing card.")
+                    .photoUrl(i % 2 == 0 ? "book-" + i + ".jpg" : null)
+                    .exchangePreference("Swap for any fantasy novel")
+                    .latitude(5.9 + random.nextDouble() * 4)
+                    .longitude(79.6 + random.nextDouble() * 2.3)
+                    .locationName("Colombo")
+                    .status(BookStatus.AVAILABLE)
+                    .owner(owner)
+                    .createdAt(now.minusMinutes(i))
+                    .build());
+        }
+        return books;
+    }
+}
@@ -0,0 +1,94 @@
+package com.bookswap.bookswap.benchmark;
+
+import com.bookswap.bookswap.dto.BookResponseDTO;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.service.BookFacetIndex;
+import com.bookswap.bookswap.service.BookGeoIndex;
+import com.bookswap.bookswap.service.BookSearchIndex;
+import com.bookswap.bookswap.service.BookService;
+import com.bookswap.bookswap.service.FileStorageService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Entity-to-DTO mapping for a page of books. Repositories are stubbed, so this measures the
+ * mapping itself; location names are persisted on the book, so no geocoder is involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookMappingBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private BookService bookService;
+    private User viewer;
+    private List<Book> books;
+
+    @Setup
+    public void setUp() {
+        // stubOnly: don't record invocations, which would grow without bound across iterations
+        SwapRequestRepository swapRequestRepository = stub(SwapRequestRepository.class);
+        Mockito.when(swapRequestRepository.countByBookAndStatus(any(), eq(SwapRequestStatus.PENDING))).thenReturn(2L);
+        // Mapping only touches the swap request repository; the rest are inert mocks
+        bookService = new BookService(
+                stub(BookRepository.class),
+                stub(FileStorageService.class),
+                swapRequestRepository,
+                stub(BookGeoIndex.class),
+                stub(BookSearchIndex.class),
+                stub(BookFacetIndex.class),
+                stub(ApplicationEventPublisher.class));
+
+        viewer = User.builder().id(1L).name("Viewer").email("viewer@example.com").password("x")
+                .latitude(6.9271).longitude(79.8612).build();
+        books = BenchmarkData.books(pageSize);
+    }
+
+    // List path: pending counts were batched by the caller
+    @Benchmark
+    public void mapPage(Blackhole blackhole) {
+        for (Book book : books) {
+            blackhole.consume(bookService.mapToBookResponseDTO(book, viewer, 2L));
+        }
+    }
+
+    // Single-book path: one (stubbed) count lookup per book
+    @Benchmark
+    public void mapOneByOne(Blackhole blackhole) {
+        for (Book book : books) {
+            BookResponseDTO dto = bookService.mapToBookResponseDTO(book, viewer);
+            blackhole.consume(dto);
+        }
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return Mockito.mock(type, Mockito.withSettings().stubOnly());
+    }
+}
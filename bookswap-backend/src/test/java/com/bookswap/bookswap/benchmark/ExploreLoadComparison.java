@@ -0,0 +1,99 @@
+package com.bookswap.bookswap.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for GET /api/books/explore, used to compare a server running on
+ * platform threads with one running on virtual threads (spring.threads.virtual.enabled=true,
+ * Java 21+ runtime). Start the backend in one mode, run this, restart in the other mode, run again:
+ *
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.bookswap.bookswap.benchmark.ExploreLoadComparison
+ *     -Dexec.args="platform http://localhost:8080 $TOKEN 400 30"
+ *
+ * Arguments: label, base URL, bearer token, concurrent clients, duration in seconds. Prints a
+ * human-readable summary and one JSON line, so runs can be collected and compared.
+ */
+public final class ExploreLoadComparison {
+
+    private ExploreLoadComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String label = args.length > 0 ? args[0] : "run";
+        String baseUrl = args.length > 1 ? args[1] : "http://localhost:8080";
+        String token = args.length > 2 ? args[2] : System.getenv("BOOKSWAP_TOKEN");
+        int clients = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/books/explore?limit=20"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        long[][] latencies = new long[clients][];
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+
+        for (int client = 0; client < clients; client++) {
+            int index = client;
+            executor.execute(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = System.nanoTime() - start;
+                }
+                latencies[index] = Arrays.copyOf(samples, count);
+                done.countDown();
+            });
+        }
+        done.await();
+        executor.shutdown();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        double throughput = all.length / (double) seconds;
+        System.out.printf(Locale.ROOT, "%s: %d clients, %d ok, %d errors, %.1f req/s, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms%n",
+                label, clients, all.length, errors.get(), throughput,
+                percentileMillis(all, 0.50), percentileMillis(all, 0.95), percentileMillis(all, 0.99));
+        System.out.printf(Locale.ROOT,
+                "{\"label\":\"%s\",\"clients\":%d,\"ok\":%d,\"errors\":%d,\"throughput\":%.2f,\"p50Ms\":%.2f,\"p95Ms\":%.2f,\"p99Ms\":%.2f}%n",
+                label, clients, all.length, errors.get(), throughput,
+                percentileMillis(all, 0.50), percentileMillis(all, 0.95), percentileMillis(all, 0.99));
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,70 @@
+package com.bookswap.bookswap.benchmark;
+
+import com.bookswap.bookswap.util.DistanceBatch;
+import com.bookswap.bookswap.util.HaversineUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Distance scoring of one origin against a candidate set, per call and batched
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HaversineBenchmark {
+
+    private static final double ORIGIN_LAT = 6.9271;
+    private static final double ORIGIN_LNG = 79.8612;
+
+    @Param({"100", "10000"})
+    private int candidates;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private DistanceBatch batch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        latitudes = new double[candidates];
+        longitudes = new double[candidates];
+        batch = new DistanceBatch(candidates);
+        for (int i = 0; i < candidates; i++) {
+            // Roughly Sri Lanka, so a 25 km radius keeps a realistic share of the candidates
+            latitudes[i] = 5.9 + random.nextDouble() * 4;
+            longitudes[i] = 79.6 + random.nextDouble() * 2.3;
+            batch.add(latitudes[i], longitudes[i]);
+        }
+    }
+
+    @Benchmark
+    public void calculateDistance(Blackhole blackhole) {
+        for (int i = 0; i < candidates; i++) {
+            blackhole.consume(HaversineUtil.calculateDistance(ORIGIN_LAT, ORIGIN_LNG, latitudes[i], longitudes[i]));
+        }
+    }
+
+    @Benchmark
+    public double[] batchDistances() {
+        return batch.distancesFrom(ORIGIN_LAT, ORIGIN_LNG);
+    }
+
+    @Benchmark
+    public Object batchWithinRadius() {
+        return batch.within(ORIGIN_LAT, ORIGIN_LNG, 25);
+    }
+}
@@ -0,0 +1,34 @@
+package com.bookswap.bookswap.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitedDataSourceTest {
+
+    @Test
+    void limitsCheckedOutConnectionsAndReleasesOnClose() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:limited;DB_CLOSE_DELAY=-1");
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(h2, 1, 50);
+
+        Connection first = dataSource.getConnection();
+        assertThat(first.isValid(1)).isTrue();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        first.close(); // a second close must not hand out an extra permit
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+
+        try (Connection second = dataSource.getConnection()) {
+            assertThat(second.isValid(1)).isTrue();
+            assertThat(dataSource.availablePermits()).isZero();
+        }
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,34 @@
+package com.bookswap.bookswap.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Test stand-in for the PostgreSQL partial index of {@link PendingRequestIndexInitializer}. H2 has no
+ * partial indexes, so a generated column holds book_id only while the request is PENDING and NULL
+ * otherwise; NULLs never collide in a unique index, which gives the same guarantee under the same name.
+ */
+public class H2PendingRequestIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depends on the EntityManagerFactory so Hibernate has created the tables first
+    public H2PendingRequestIndex(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public void create() {
+        jdbcTemplate.execute("ALTER TABLE swap_requests ADD COLUMN IF NOT EXISTS pending_book_id BIGINT " +
+                "GENERATED ALWAYS AS (CASE WHEN status = 'PENDING' THEN book_id END)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + PendingRequestIndexInitializer.INDEX_NAME +
+                " ON swap_requests (pending_book_id, requester_id)");
+    }
+
+    public void drop() {
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + PendingRequestIndexInitializer.INDEX_NAME);
+    }
+}
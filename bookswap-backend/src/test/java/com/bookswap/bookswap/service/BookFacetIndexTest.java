@@ -0,0 +1,100 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.util.PageCursor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The repository is only used by rebuild(), so the index is exercised directly
+class BookFacetIndexTest {
+
+    private static final long OWNER = 1L;
+    private static final long READER = 2L;
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final BookFacetIndex index = new BookFacetIndex(null);
+
+    @Test
+    void pagesAreNewestFirstAndContinueAfterTheCursor() {
+        for (long id = 1; id <= 5; id++) {
+            index.put(id, OWNER, "Fiction", "English", BookCondition.GOOD, T0.plusMinutes(id));
+        }
+        // Same timestamp as book 5: the id breaks the tie
+        index.put(6L, OWNER, "Fiction", "English", BookCondition.GOOD, T0.plusMinutes(5));
+
+        List<BookFacetIndex.Candidate> first = index.page(BookFacetIndex.Filter.none(), READER, PageCursor.start(), 3);
+        assertThat(first).extracting(BookFacetIndex.Candidate::bookId).containsExactly(6L, 5L, 4L);
+
+        BookFacetIndex.Candidate last = first.get(first.size() - 1);
+        assertThat(index.page(BookFacetIndex.Filter.none(), READER, new PageCursor(last.createdAt(), last.bookId()), 3))
+                .extracting(BookFacetIndex.Candidate::bookId)
+                .containsExactly(3L, 2L, 1L);
+        assertThat(index.page(BookFacetIndex.Filter.none(), OWNER, PageCursor.start(), 10)).isEmpty();
+    }
+
+    @Test
+    void filtersOrWithinAFacetAndAndAcrossFacets() {
+        index.put(1L, OWNER, "Fiction", "English", BookCondition.GOOD, T0.plusMinutes(1));
+        index.put(2L, OWNER, "Poetry", "English", BookCondition.NEW, T0.plusMinutes(2));
+        index.put(3L, OWNER, "Fiction", "German", BookCondition.GOOD, T0.plusMinutes(3));
+        index.put(4L, OWNER, "History", "English", BookCondition.GOOD, T0.plusMinutes(4));
+
+        BookFacetIndex.Filter filter = new BookFacetIndex.Filter(Set.of("Fiction", "Poetry"), Set.of("English"), null);
+
+        assertThat(index.page(filter, READER, PageCursor.start(), 10))
+                .extracting(BookFacetIndex.Candidate::bookId)
+                .containsExactly(2L, 1L);
+        assertThat(index.matches(1L, filter)).isTrue();
+        assertThat(index.matches(3L, filter)).isFalse();
+    }
+
+    @Test
+    void countsApplyTheOtherFacetsAndSkipTheCallersBooks() {
+        index.put(1L, OWNER, "Fiction", "English", BookCondition.GOOD, T0);
+        index.put(2L, OWNER, "Fiction", "German", BookCondition.NEW, T0);
+        index.put(3L, READER, "Fiction", "English", BookCondition.GOOD, T0);
+        index.put(4L, OWNER, "Poetry", "English", BookCondition.FAIR, T0);
+        index.put(5L, OWNER, "Fiction", "English", BookCondition.NEW, T0);
+
+        Map<String, Map<String, Long>> counts =
+                index.counts(new BookFacetIndex.Filter(Set.of("Fiction"), Set.of("English"), null), READER, null);
+
+        // Genre counts ignore the genre filter but keep the language one; the reader's own book is left out.
+        // Values come largest first.
+        assertThat(counts.get(BookFacetIndex.GENRE)).containsExactly(Map.entry("Fiction", 2L), Map.entry("Poetry", 1L));
+        assertThat(counts.get(BookFacetIndex.LANGUAGE)).containsExactly(Map.entry("English", 2L), Map.entry("German", 1L));
+        assertThat(counts.get(BookFacetIndex.CONDITION)).containsExactlyInAnyOrderEntriesOf(Map.of("GOOD", 1L, "NEW", 1L));
+
+        assertThat(index.counts(BookFacetIndex.Filter.none(), READER, List.of(1L, 4L)).get(BookFacetIndex.GENRE))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("Fiction", 1L, "Poetry", 1L));
+    }
+
+    @Test
+    void updatesAndRemovalsAreReflectedInPagesAndCounts() {
+        index.put(1L, OWNER, "Fiction", "English", BookCondition.GOOD, T0.plusMinutes(1));
+        index.put(2L, OWNER, "Fiction", "English", BookCondition.GOOD, T0.plusMinutes(2));
+
+        // Book 1 is recategorised, book 2 is swapped away and its slot reused by book 3
+        index.put(1L, OWNER, "Poetry", "French", BookCondition.FAIR, T0.plusMinutes(1));
+        index.remove(2L);
+        index.put(3L, OWNER, "History", "English", BookCondition.NEW, T0.plusMinutes(3));
+
+        BookFacetIndex.Filter fiction = new BookFacetIndex.Filter(Set.of("Fiction"), null, null);
+        assertThat(index.page(fiction, READER, PageCursor.start(), 10)).isEmpty();
+        assertThat(index.page(BookFacetIndex.Filter.none(), READER, PageCursor.start(), 10))
+                .extracting(BookFacetIndex.Candidate::bookId)
+                .containsExactly(3L, 1L);
+
+        Map<String, Map<String, Long>> counts = index.counts(BookFacetIndex.Filter.none(), READER, null);
+        assertThat(counts.get(BookFacetIndex.GENRE)).containsOnlyKeys("Poetry", "History");
+        assertThat(counts.get(BookFacetIndex.LANGUAGE)).containsOnlyKeys("French", "English");
+        assertThat(counts.get(BookFacetIndex.CONDITION)).containsOnlyKeys("FAIR", "NEW");
+        assertThat(index.matches(2L, fiction)).isFalse();
+    }
+}
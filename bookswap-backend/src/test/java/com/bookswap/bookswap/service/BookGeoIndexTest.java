@@ -0,0 +1,87 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.util.HaversineUtil;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The repository is only used by rebuild(), so the index is exercised directly
+class BookGeoIndexTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final BookGeoIndex index = new BookGeoIndex(null, 0.05);
+
+    @Test
+    void radiusQueriesMatchBruteForceAcrossCellBoundaries() {
+        // Clusters straddling cell edges, the antimeridian and a pole
+        double[][] centers = {{6.925, 79.85}, {0.0, 179.99}, {0.0, -179.99}, {89.97, 10.0}, {-33.9, 18.4}};
+        Random random = new Random(11);
+        List<double[]> points = new ArrayList<>();
+        for (double[] center : centers) {
+            for (int i = 0; i < 400; i++) {
+                double lat = Math.max(-90, Math.min(90, center[0] + (random.nextDouble() - 0.5) * 0.6));
+                double lng = center[1] + (random.nextDouble() - 0.5) * 0.6;
+                lng = lng > 180 ? lng - 360 : lng < -180 ? lng + 360 : lng;
+                points.add(new double[]{lat, lng});
+                index.put((long) points.size(), 1L, lat, lng, CREATED);
+            }
+        }
+
+        for (double[] center : centers) {
+            for (double radiusKm : new double[]{0.5, 3, 10, 25, 20_000}) {
+                List<Long> expected = new ArrayList<>();
+                for (int i = 0; i < points.size(); i++) {
+                    double[] point = points.get(i);
+                    if (HaversineUtil.calculateDistance(center[0], center[1], point[0], point[1]) <= radiusKm) {
+                        expected.add(i + 1L);
+                    }
+                }
+                assertThat(index.findWithin(center[0], center[1], radiusKm, null))
+                        .as("center %s,%s radius %s", center[0], center[1], radiusKm)
+                        .extracting(BookGeoIndex.Entry::bookId)
+                        .containsExactlyInAnyOrderElementsOf(expected);
+            }
+        }
+    }
+
+    @Test
+    void pointOnACellEdgeIsFoundFromBothSides() {
+        // 0.05 degrees is a cell edge; the book sits exactly on it
+        index.put(1L, 1L, 0.05, 0.05, CREATED);
+
+        assertThat(index.findWithin(0.0499, 0.0499, 0.1, null)).hasSize(1);
+        assertThat(index.findWithin(0.0501, 0.0501, 0.1, null)).hasSize(1);
+        assertThat(index.findWithin(0.0501, 0.0501, 0.001, null)).isEmpty();
+    }
+
+    @Test
+    void movedBooksLeaveTheirOldCellAndRemovedBooksAreGone() {
+        index.put(1L, 1L, 52.52, 13.40, CREATED);
+        index.put(2L, 2L, 52.52, 13.40, CREATED);
+
+        index.put(1L, 1L, 48.85, 2.35, CREATED);
+        assertThat(index.findWithin(52.52, 13.40, 5, null)).extracting(BookGeoIndex.Entry::bookId).containsExactly(2L);
+        assertThat(index.findWithin(48.85, 2.35, 5, null)).extracting(BookGeoIndex.Entry::bookId).containsExactly(1L);
+
+        // A book that lost its coordinates drops out like a removed one
+        index.put(1L, 1L, null, null, CREATED);
+        index.remove(2L);
+        assertThat(index.findWithin(52.52, 13.40, 1000, null)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void excludedOwnersBooksAreSkipped() {
+        index.put(1L, 7L, 52.52, 13.40, CREATED);
+        index.put(2L, 8L, 52.521, 13.401, CREATED);
+
+        assertThat(index.findWithin(52.52, 13.40, 5, 7L)).extracting(BookGeoIndex.Entry::bookId).containsExactly(2L);
+        assertThat(index.findWithin(52.52, 13.40, 5, null)).hasSize(2);
+    }
+}
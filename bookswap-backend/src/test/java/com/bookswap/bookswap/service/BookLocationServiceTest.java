@@ -0,0 +1,82 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "book.location.backfill-batch-size=2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(BookLocationService.class)
+class BookLocationServiceTest {
+
+    @Autowired
+    private BookLocationService bookLocationService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private GeocodingService geocodingService;
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void failedLookupsDoNotHoldBackTheRowsBehindThem() {
+        User owner = userRepository.save(user("owner@example.com"));
+        Book nowhere = bookRepository.save(book(owner, 0.0));
+        Book alsoNowhere = bookRepository.save(book(owner, 0.0));
+        Book berlin = bookRepository.save(book(owner, 52.52));
+        when(geocodingService.getCityFromCoordinates(eq(0.0), anyDouble())).thenReturn(GeocodingService.UNKNOWN_LOCATION);
+        when(geocodingService.getCityFromCoordinates(eq(52.52), anyDouble())).thenReturn("Berlin");
+
+        // A full batch of failures, then the next run moves past them
+        bookLocationService.backfillLocationNames();
+        bookLocationService.backfillLocationNames();
+
+        assertThat(bookRepository.findById(berlin.getId()).orElseThrow().getLocationName()).isEqualTo("Berlin");
+        assertThat(bookRepository.findById(nowhere.getId()).orElseThrow())
+                .satisfies(book -> {
+                    assertThat(book.getLocationName()).isNull();
+                    assertThat(book.getLocationAttemptedAt()).isNotNull();
+                });
+        assertThat(bookRepository.findById(alsoNowhere.getId()).orElseThrow().getLocationAttemptedAt()).isNotNull();
+    }
+
+    private static Book book(User owner, double latitude) {
+        return Book.builder()
+                .title("Dune")
+                .author("Frank Herbert")
+                .genre("Science Fiction")
+                .language("English")
+                .bookCondition(BookCondition.GOOD)
+                .latitude(latitude)
+                .longitude(13.40)
+                .status(BookStatus.AVAILABLE)
+                .owner(owner)
+                .build();
+    }
+}
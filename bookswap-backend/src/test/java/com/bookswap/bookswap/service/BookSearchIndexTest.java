@@ -0,0 +1,95 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.User;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The repository is only used by rebuild(), so the index is exercised directly
+class BookSearchIndexTest {
+
+    private static final long OWNER = 1L;
+    private static final long READER = 2L;
+
+    private final BookSearchIndex index = new BookSearchIndex(null);
+
+    @Test
+    void titleMatchesOutrankDescriptionMatches() {
+        index.index(book(10L, "The Hobbit", "Tolkien", "A dragon guards its gold", BookStatus.AVAILABLE));
+        index.index(book(11L, "Dragon Rider", "Funke", "A boy and a dragon", BookStatus.AVAILABLE));
+        index.index(book(12L, "Emma", "Austen", "Matchmaking in Highbury", BookStatus.AVAILABLE));
+
+        assertThat(index.search("dragon", BookStatus.AVAILABLE, READER, 0, 10))
+                .extracting(BookSearchIndex.Hit::bookId)
+                .containsExactly(11L, 10L);
+    }
+
+    @Test
+    void ownBooksOtherStatusesAndRemovedBooksAreSkipped() {
+        index.index(book(20L, "Dune", "Herbert", null, BookStatus.AVAILABLE));
+        index.index(book(21L, "Dune Messiah", "Herbert", null, BookStatus.LENT_OUT));
+        index.index(book(22L, "Children of Dune", "Herbert", null, BookStatus.AVAILABLE));
+        index.remove(22L);
+
+        assertThat(index.search("dune", BookStatus.AVAILABLE, READER, 0, 10))
+                .extracting(BookSearchIndex.Hit::bookId)
+                .containsExactly(20L);
+        assertThat(index.search("dune", BookStatus.AVAILABLE, OWNER, 0, 10)).isEmpty();
+    }
+
+    @Test
+    void reindexedBooksAreFoundByTheirNewTextOnlyAfterCompaction() {
+        // Re-indexing every book tombstones its first slot, so compaction kicks in along the way
+        for (long id = 1; id <= 800; id++) {
+            index.index(book(id, "Old title " + id, "Author", null, BookStatus.AVAILABLE));
+        }
+        for (long id = 1; id <= 800; id++) {
+            index.index(book(id, (id == 400 ? "Unique sequel" : "New title ") + id, "Author", null, BookStatus.AVAILABLE));
+        }
+
+        assertThat(index.search("old", BookStatus.AVAILABLE, READER, 0, 10)).isEmpty();
+        assertThat(index.search("unique", BookStatus.AVAILABLE, READER, 0, 10))
+                .extracting(BookSearchIndex.Hit::bookId)
+                .containsExactly(400L);
+        assertThat(index.search("new", BookStatus.AVAILABLE, READER, 0, 100)).hasSize(100);
+        assertThat(index.search("author", BookStatus.AVAILABLE, READER, 790, 100)).hasSize(10);
+    }
+
+    @Test
+    void pagesSliceTheRanking() {
+        for (long id = 1; id <= 25; id++) {
+            index.index(book(id, "Poems " + id, "Author", null, BookStatus.AVAILABLE));
+        }
+
+        assertThat(index.search("poems", BookStatus.AVAILABLE, READER, 20, 10)).hasSize(5);
+        assertThat(index.search("poems", BookStatus.AVAILABLE, READER, 30, 10)).isEmpty();
+    }
+
+    @Test
+    void outOfRangeWindowsAreRejected() {
+        index.index(book(30L, "Ulysses", "Joyce", null, BookStatus.AVAILABLE));
+
+        assertThatThrownBy(() -> index.search("ulysses", BookStatus.AVAILABLE, READER, -5, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search("ulysses", BookStatus.AVAILABLE, READER, 2_147_483_600, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search("ulysses", BookStatus.AVAILABLE, READER, BookSearchIndex.MAX_OFFSET + 1, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(index.search("ulysses", BookStatus.AVAILABLE, READER, BookSearchIndex.MAX_OFFSET, 10)).isEmpty();
+    }
+
+    private static Book book(Long id, String title, String author, String description, BookStatus status) {
+        return Book.builder()
+                .id(id)
+                .title(title)
+                .author(author)
+                .genre("Fiction")
+                .description(description)
+                .status(status)
+                .owner(User.builder().id(OWNER).build())
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.TestFixtures;
+import com.bookswap.bookswap.dto.ExploreResponseDTO;
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.SwapRequest;
+import com.bookswap.bookswap.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Guards against N+1 regressions: listing a page must cost the same number of SQL statements
+// no matter how many books (and pending requests) are on it.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "book.photo.upload-dir=./target/test-uploads"
+})
+@Import({BookService.class, BookGeoIndex.class, BookSearchIndex.class, BookFacetIndex.class, SwapRequestService.class})
+class BookServiceQueryCountTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private SwapRequestService swapRequestService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private FileStorageService fileStorageService;
+
+    private User owner;
+    private User viewer;
+
+    @BeforeEach
+    void setUp() {
+        owner = entityManager.persist(locatedUser("owner"));
+        viewer = entityManager.persist(locatedUser("viewer"));
+    }
+
+    @Test
+    void exploreIssuesConstantNumberOfStatements() {
+        addBooksWithPendingRequests(3);
+        long small = countStatements(() -> bookService.getExploreBooks(viewer, null, null, null, BookFacetIndex.Filter.none(), null, 50));
+
+        addBooksWithPendingRequests(12);
+        AtomicReference<ExploreResponseDTO> page = new AtomicReference<>();
+        long large = countStatements(() -> page.getAndSet(bookService.getExploreBooks(viewer, null, null, null, BookFacetIndex.Filter.none(), null, 50)));
+
+        assertEquals(15, page.get().getItems().size());
+        page.get().getItems().forEach(book -> assertEquals(2L, book.getRequestCount()));
+        assertEquals(small, large);
+    }
+
+    @Test
+    void myBooksIssuesConstantNumberOfStatements() {
+        addBooksWithPendingRequests(2);
+        long small = countStatements(() -> bookService.getBooksForUser(owner, null, 50));
+
+        addBooksWithPendingRequests(10);
+        long large = countStatements(() -> bookService.getBooksForUser(owner, null, 50));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void exploreLoadsOwnersWithTheBooks() {
+        addBooksFromDistinctOwners(3);
+        long small = countStatements(() -> bookService.getExploreBooks(viewer, null, null, null, BookFacetIndex.Filter.none(), null, 50));
+
+        addBooksFromDistinctOwners(12);
+        long large = countStatements(() -> bookService.getExploreBooks(viewer, null, null, null, BookFacetIndex.Filter.none(), null, 50));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void swapListingsIssueConstantNumberOfStatements() {
+        addBooksFromDistinctOwners(3);
+        addBooksWithPendingRequests(2);
+        long smallOutgoing = countStatements(() -> swapRequestService.getOutgoingRequests(viewer, null, 50));
+        long smallIncoming = countStatements(() -> swapRequestService.getIncomingRequests(owner, null, 50));
+
+        addBooksFromDistinctOwners(12);
+        addBooksWithPendingRequests(12);
+        long largeOutgoing = countStatements(() -> swapRequestService.getOutgoingRequests(viewer, null, 50));
+        long largeIncoming = countStatements(() -> swapRequestService.getIncomingRequests(owner, null, 50));
+
+        assertEquals(smallOutgoing, largeOutgoing);
+        assertEquals(smallIncoming, largeIncoming);
+        // A page is one projection query with the pending counts aggregated in SQL
+        assertEquals(1, largeOutgoing);
+        assertEquals(1, largeIncoming);
+        swapRequestService.getIncomingRequests(owner, null, 50).getItems()
+                .forEach(request -> assertEquals(2L, request.getBook().getRequestCount()));
+    }
+
+    private long countStatements(Supplier<?> listing) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        listing.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Each book has its own owner and a pending request from the viewer
+    private void addBooksFromDistinctOwners(int count) {
+        for (int i = 0; i < count; i++) {
+            User bookOwner = entityManager.persist(locatedUser("owner-" + i + "-" + System.nanoTime()));
+            Book book = entityManager.persist(book(i, bookOwner));
+            entityManager.persist(SwapRequest.builder()
+                    .book(book)
+                    .requester(viewer)
+                    .owner(bookOwner)
+                    .status(SwapRequestStatus.PENDING)
+                    .build());
+        }
+    }
+
+    private void addBooksWithPendingRequests(int count) {
+        for (int i = 0; i < count; i++) {
+            Book book = entityManager.persist(book(i, owner));
+            for (int r = 0; r < 2; r++) {
+                User requester = entityManager.persist(locatedUser("requester-" + book.getId() + "-" + r));
+                entityManager.persist(SwapRequest.builder()
+                        .book(book)
+                        .requester(requester)
+                        .owner(owner)
+                        .status(SwapRequestStatus.PENDING)
+                        .build());
+            }
+        }
+    }
+
+    private static Book book(int i, User owner) {
+        return Book.builder()
+                .title("Book " + i)
+                .author("Author")
+                .genre("Fiction")
+                .language("English")
+                .bookCondition(BookCondition.GOOD)
+                .latitude(6.9)
+                .longitude(79.8)
+                .status(BookStatus.AVAILABLE)
+                .owner(owner)
+                .build();
+    }
+
+    private static User locatedUser(String name) {
+        User user = TestFixtures.user(name + "@example.com");
+        user.setLatitude(6.9);
+        user.setLongitude(79.9);
+        return user;
+    }
+}
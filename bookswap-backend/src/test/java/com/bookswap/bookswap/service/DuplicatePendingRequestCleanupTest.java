@@ -0,0 +1,120 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.config.H2PendingRequestIndex;
+import com.bookswap.bookswap.config.PendingRequestIndexInitializer;
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.event.SwapRequestsChangedEvent;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.SwapRequest;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.repository.NotificationOutboxRepository;
+import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Simulates a database from before the index: duplicates are inserted while it is dropped
+@DataJpaTest(properties = "swap.maintenance.cancel-duplicate-pending-requests=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DuplicatePendingRequestCleanup.class, PendingRequestIndexInitializer.class, H2PendingRequestIndex.class,
+        DuplicatePendingRequestCleanupTest.CommittedEvents.class})
+class DuplicatePendingRequestCleanupTest {
+
+    static class CommittedEvents {
+        final List<SwapRequestsChangedEvent> events = new CopyOnWriteArrayList<>();
+
+        @TransactionalEventListener
+        void onCommitted(SwapRequestsChangedEvent event) {
+            events.add(event);
+        }
+    }
+
+    @Autowired
+    private DuplicatePendingRequestCleanup cleanup;
+
+    @Autowired
+    private H2PendingRequestIndex index;
+
+    @Autowired
+    private CommittedEvents committedEvents;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SwapRequestRepository swapRequestRepository;
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        outboxRepository.deleteAll();
+        swapRequestRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+        index.create();
+    }
+
+    @Test
+    void olderDuplicatesAreCancelledAndTheirRequesterIsTold() {
+        User owner = userRepository.save(user("owner@example.com"));
+        User eager = userRepository.save(user("eager@example.com"));
+        User other = userRepository.save(user("other@example.com"));
+        Book book = bookRepository.save(Book.builder()
+                .title("Dune").author("Frank Herbert").genre("Science Fiction").language("English")
+                .bookCondition(BookCondition.GOOD).latitude(52.52).longitude(13.40)
+                .status(BookStatus.AVAILABLE).owner(owner).build());
+
+        index.drop();
+        SwapRequest oldest = swapRequestRepository.save(pending(book, eager, owner));
+        SwapRequest older = swapRequestRepository.save(pending(book, eager, owner));
+        SwapRequest newest = swapRequestRepository.save(pending(book, eager, owner));
+        SwapRequest someoneElse = swapRequestRepository.save(pending(book, other, owner));
+
+        assertThat(cleanup.cancelSupersededRequests()).isEqualTo(2);
+
+        assertThat(swapRequestRepository.findAll())
+                .extracting(request -> request.getId() + ":" + request.getStatus())
+                .containsExactlyInAnyOrder(oldest.getId() + ":CANCELLED", older.getId() + ":CANCELLED",
+                        newest.getId() + ":PENDING", someoneElse.getId() + ":PENDING");
+        assertThat(outboxRepository.findAll())
+                .extracting(entry -> entry.getRecipientId() + ":" + entry.getType() + ":" + entry.getRelatedSwapRequestId())
+                .containsExactlyInAnyOrder(eager.getId() + ":REQUEST_CANCELLED:" + oldest.getId(),
+                        eager.getId() + ":REQUEST_CANCELLED:" + older.getId());
+        assertThat(committedEvents.events).singleElement()
+                .satisfies(event -> assertThat(event.changes())
+                        .allSatisfy(change -> assertThat(change.status()).isEqualTo(SwapRequestStatus.CANCELLED))
+                        .hasSize(2));
+
+        // Nothing is left to resolve, and the index can be created again
+        assertThat(cleanup.cancelSupersededRequests()).isZero();
+        index.create();
+        assertThatThrownBy(() -> swapRequestRepository.saveAndFlush(pending(book, eager, owner)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private static SwapRequest pending(Book book, User requester, User owner) {
+        return SwapRequest.builder().book(book).requester(requester).owner(owner).status(SwapRequestStatus.PENDING).build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.bookswap.bookswap.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The Google lookup is replaced by a counting stub, so nothing leaves the machine
+class GeocodingServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void lookupsAreSharedPerCellAndSurviveARestart() {
+        Path file = dir.resolve("geocoding-cache.json");
+        AtomicInteger lookups = new AtomicInteger();
+        GeocodingService first = service(file, "Berlin", lookups);
+
+        assertThat(first.getCityFromCoordinates(52.521, 13.404)).isEqualTo("Berlin");
+        // Rounds to the same two-decimal cell
+        assertThat(first.getCityFromCoordinates(52.519, 13.401)).isEqualTo("Berlin");
+        assertThat(lookups).hasValue(1);
+        first.shutdown();
+        assertThat(file).exists();
+
+        AtomicInteger lookupsAfterRestart = new AtomicInteger();
+        GeocodingService restarted = service(file, "Elsewhere", lookupsAfterRestart);
+
+        assertThat(restarted.getCityFromCoordinates(52.52, 13.40)).isEqualTo("Berlin");
+        assertThat(lookupsAfterRestart).hasValue(0);
+    }
+
+    @Test
+    void failedLookupsAreNeitherCachedNorPersisted() {
+        Path file = dir.resolve("geocoding-cache.json");
+        AtomicInteger lookups = new AtomicInteger();
+        GeocodingService service = service(file, null, lookups);
+
+        assertThat(service.getCityFromCoordinates(52.52, 13.40)).isEqualTo(GeocodingService.UNKNOWN_LOCATION);
+        assertThat(service.getCityFromCoordinates(52.52, 13.40)).isEqualTo(GeocodingService.UNKNOWN_LOCATION);
+        assertThat(lookups).hasValue(2);
+
+        service.flushCache();
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void expiredEntriesAreSkippedOnLoad() throws Exception {
+        Path file = dir.resolve("geocoding-cache.json");
+        long now = System.currentTimeMillis();
+        objectMapper.writeValue(file.toFile(), List.of(
+                new GeocodingService.PersistedEntry("5252:1340", "Berlin", now + 60_000),
+                new GeocodingService.PersistedEntry("4885:235", "Paris", now - 1)));
+        AtomicInteger lookups = new AtomicInteger();
+        GeocodingService service = service(file, "Fresh", lookups);
+
+        assertThat(service.getCityFromCoordinates(52.52, 13.40)).isEqualTo("Berlin");
+        assertThat(service.getCityFromCoordinates(48.85, 2.35)).isEqualTo("Fresh");
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void unreadableCacheFileStartsEmpty() throws Exception {
+        Path file = dir.resolve("geocoding-cache.json");
+        Files.writeString(file, "not json");
+        AtomicInteger lookups = new AtomicInteger();
+
+        GeocodingService service = service(file, "Berlin", lookups);
+
+        assertThat(service.getCityFromCoordinates(52.52, 13.40)).isEqualTo("Berlin");
+        assertThat(lookups).hasValue(1);
+    }
+
+    private GeocodingService service(Path file, String city, AtomicInteger lookups) {
+        return new GeocodingService("test-key", 100, 24, 2, file.toString(), 1, 100,
+                objectMapper, new SimpleMeterRegistry()) {
+            @Override
+            String lookupCity(double lat, double lng) {
+                lookups.incrementAndGet();
+                return city;
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.model.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private static final String SECRET_KEY = "dGVzdC1vbmx5LXNlY3JldC1rZXktZm9yLWp3dC1zZXJ2aWNlLXRlc3RzLTAxMjM0";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtService(SECRET_KEY, 100, meterRegistry);
+        user = User.builder().id(1L).name("Reader").email("reader@example.com").password("x").build();
+    }
+
+    @Test
+    void validTokenIsVerifiedOnceAndThenServedFromCache() {
+        String token = jwtService.generateToken(user);
+
+        assertThat(jwtService.validate(token).username()).isEqualTo("reader@example.com");
+        assertThat(jwtService.isTokenValid(token, user)).isTrue();
+        assertThat(jwtService.extractUsername(token)).isEqualTo("reader@example.com");
+
+        assertThat(meterRegistry.get("jwt.cache.misses").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("jwt.cache.hits").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void tamperedTokenIsRejectedEvenAfterTheOriginalWasCached() {
+        String token = jwtService.generateToken(user);
+        jwtService.validate(token);
+
+        String[] parts = token.split("\\.");
+        char last = parts[2].charAt(0);
+        String tampered = parts[0] + "." + parts[1] + "." + (last == 'A' ? 'B' : 'A') + parts[2].substring(1);
+
+        assertThat(jwtService.validate(tampered)).isNull();
+        assertThat(jwtService.validate("not-a-token")).isNull();
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String expired = Jwts.builder()
+                .setSubject(user.getEmail())
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThat(jwtService.validate(expired)).isNull();
+        assertThat(jwtService.isTokenValid(expired, user)).isFalse();
+    }
+
+    @Test
+    void tokenForAnotherUserIsNotValidForThisOne() {
+        User other = User.builder().id(2L).name("Other").email("other@example.com").password("x").build();
+        String token = jwtService.generateToken(other);
+
+        assertThat(jwtService.isTokenValid(token, user)).isFalse();
+    }
+}
@@ -0,0 +1,182 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.event.SwapRequestChangedEvent;
+import com.bookswap.bookswap.event.SwapRequestsChangedEvent;
+import com.bookswap.bookswap.model.NotificationOutbox;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.NotificationOutboxRepository;
+import com.bookswap.bookswap.repository.NotificationRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.bookswap.bookswap.TestFixtures.awaitUntil;
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs without the test-managed transaction so commit and rollback behave as in production.
+// The application enables @Async, so after-commit delivery happens on another thread and is awaited.
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotificationOutboxRelay.class, NotificationService.class, UnreadCountTracker.class,
+        NotificationOutboxRelayTest.Metrics.class})
+class NotificationOutboxRelayTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private NotificationOutboxRelay relay;
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanUp() {
+        notificationRepository.deleteAll();
+        outboxRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void outboxEntryIsWrittenInTheSwapTransactionAndDeliveredAfterCommit() {
+        User owner = userRepository.save(user("owner@example.com"));
+        User requester = userRepository.save(user("requester@example.com"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventPublisher.publishEvent(event(SwapRequestStatus.PENDING, owner, requester));
+            assertThat(outboxRepository.count()).isEqualTo(1);
+            assertThat(notificationRepository.count()).isZero();
+        });
+
+        awaitUntil(() -> outboxRepository.count() == 0);
+        assertThat(notificationRepository.findAll())
+                .singleElement()
+                .satisfies(notification -> {
+                    assertThat(notification.getType()).isEqualTo("NEW_REQUEST");
+                    assertThat(notification.getMessage()).isEqualTo("requester requested your book 'Dune'");
+                });
+    }
+
+    @Test
+    void rolledBackSwapLeavesNothingBehind() {
+        User owner = userRepository.save(user("owner@example.com"));
+        User requester = userRepository.save(user("requester@example.com"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventPublisher.publishEvent(event(SwapRequestStatus.ACCEPTED, owner, requester));
+            status.setRollbackOnly();
+        });
+
+        assertThat(outboxRepository.count()).isZero();
+        assertThat(notificationRepository.count()).isZero();
+    }
+
+    @Test
+    void batchOfChangesIsWrittenTogetherAndDeliveredAfterCommit() {
+        User owner = userRepository.save(user("owner@example.com"));
+        User first = userRepository.save(user("requester-1@example.com"));
+        User second = userRepository.save(user("requester-2@example.com"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new SwapRequestsChangedEvent(List.of(
+                    event(SwapRequestStatus.ACCEPTED, owner, first), event(SwapRequestStatus.DECLINED, owner, second))));
+            assertThat(outboxRepository.count()).isEqualTo(2);
+        });
+
+        awaitUntil(() -> outboxRepository.count() == 0 && notificationRepository.count() == 2);
+        assertThat(notificationRepository.findAll())
+                .extracting(notification -> notification.getUser().getId() + ":" + notification.getType())
+                .containsExactlyInAnyOrder(first.getId() + ":REQUEST_ACCEPTED", second.getId() + ":REQUEST_DECLINED");
+    }
+
+    @Test
+    void failingEntryIsKeptForRetryWithoutBlockingTheOthers() {
+        User requester = userRepository.save(user("requester@example.com"));
+        outboxRepository.save(entry(requester.getId()));
+        NotificationOutbox orphan = outboxRepository.save(entry(Long.MAX_VALUE));
+        outboxRepository.save(entry(requester.getId()));
+
+        relay.drain();
+
+        awaitUntil(() -> notificationRepository.count() == 2 && outboxRepository.count() == 1);
+        assertThat(outboxRepository.findAll())
+                .singleElement()
+                .satisfies(entry -> {
+                    assertThat(entry.getId()).isEqualTo(orphan.getId());
+                    assertThat(entry.getAttempts()).isEqualTo(1);
+                    assertThat(entry.getNextAttemptAt()).isAfter(LocalDateTime.now());
+                });
+    }
+
+    @Test
+    void entryIsDroppedOnceItRunsOutOfAttempts() {
+        double droppedBefore = meterRegistry.get("notifications.outbox.dropped").counter().count();
+        NotificationOutbox orphan = entry(Long.MAX_VALUE);
+        orphan.setAttempts(14);
+        outboxRepository.save(orphan);
+        NotificationOutbox later = entry(Long.MAX_VALUE);
+        later.setNextAttemptAt(LocalDateTime.now().plusHours(1));
+        outboxRepository.save(later);
+
+        relay.drain();
+
+        awaitUntil(() -> outboxRepository.count() == 1);
+        assertThat(meterRegistry.get("notifications.outbox.dropped").counter().count() - droppedBefore).isEqualTo(1);
+        assertThat(notificationRepository.count()).isZero();
+        // The backlog is counted by the drain, and still includes the entry that is not due yet
+        awaitUntil(() -> meterRegistry.get("notifications.outbox.backlog").gauge().value() == 1);
+    }
+
+    private static SwapRequestChangedEvent event(SwapRequestStatus status, User owner, User requester) {
+        return new SwapRequestChangedEvent(10L, status, 20L, "Dune",
+                requester.getId(), requester.getName(), owner.getId(), owner.getName());
+    }
+
+    private static NotificationOutbox entry(Long recipientId) {
+        return NotificationOutbox.builder()
+                .recipientId(recipientId)
+                .type("REQUEST_DECLINED")
+                .message("Owner declined your request for 'Dune'")
+                .relatedSwapRequestId(10L)
+                .relatedBookId(20L)
+                .nextAttemptAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.model.Notification;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.NotificationArchiveRepository;
+import com.bookswap.bookswap.repository.NotificationRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A batch size of one makes every run span several batches, each committed separately
+@DataJpaTest(properties = "notifications.retention.batch-size=1")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(NotificationRetentionJob.class)
+class NotificationRetentionJobTest {
+
+    @Autowired
+    private NotificationRetentionJob retentionJob;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationArchiveRepository archiveRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        archiveRepository.deleteAll();
+        notificationRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void oldReadNotificationsAreMovedToTheArchive() {
+        User reader = userRepository.save(user("reader@example.com"));
+        Notification oldRead = notificationRepository.save(notification(reader, LocalDateTime.now().minusDays(120)));
+        notificationRepository.save(notification(reader, LocalDateTime.now().minusDays(100)));
+        Notification recentRead = notificationRepository.save(notification(reader, LocalDateTime.now().minusDays(5)));
+        Notification unread = notificationRepository.save(notification(reader, null));
+
+        assertThat(retentionJob.run()).isEqualTo(2);
+
+        assertThat(notificationRepository.findAll())
+                .extracting(Notification::getId)
+                .containsExactlyInAnyOrder(recentRead.getId(), unread.getId());
+        assertThat(archiveRepository.findById(oldRead.getId())).hasValueSatisfying(archived -> {
+            assertThat(archived.getUserId()).isEqualTo(reader.getId());
+            assertThat(archived.getMessage()).isEqualTo(oldRead.getMessage());
+            assertThat(archived.getArchivedAt()).isNotNull();
+        });
+        assertThat(archiveRepository.count()).isEqualTo(2);
+        assertThat(retentionJob.run()).isZero();
+    }
+
+    @Test
+    void readNotificationsWithoutReadAtAgeByCreatedAt() {
+        User reader = userRepository.save(user("legacy@example.com"));
+        Notification legacyOld = notificationRepository.save(notification(reader, LocalDateTime.now()));
+        Notification legacyRecent = notificationRepository.save(notification(reader, LocalDateTime.now()));
+        // Rows marked read before readAt was recorded
+        jdbcTemplate.update("UPDATE notifications SET read_at = NULL, created_at = ? WHERE id = ?",
+                LocalDateTime.now().minusDays(200), legacyOld.getId());
+        jdbcTemplate.update("UPDATE notifications SET read_at = NULL, created_at = ? WHERE id = ?",
+                LocalDateTime.now().minusDays(10), legacyRecent.getId());
+
+        assertThat(retentionJob.run()).isEqualTo(1);
+
+        assertThat(archiveRepository.findById(legacyOld.getId())).isPresent();
+        assertThat(notificationRepository.findById(legacyRecent.getId()))
+                .hasValueSatisfying(kept -> assertThat(kept.getReadAt()).isEqualTo(kept.getCreatedAt()));
+    }
+
+    @Test
+    void deleteModeDropsOldReadNotificationsWithoutArchiving() {
+        NotificationRetentionJob deletingJob = new NotificationRetentionJob(notificationRepository, archiveRepository,
+                transactionManager, NotificationRetentionJob.Mode.DELETE, 90, 10, 10);
+        User reader = userRepository.save(user("deleter@example.com"));
+        notificationRepository.save(notification(reader, LocalDateTime.now().minusDays(120)));
+
+        assertThat(deletingJob.run()).isEqualTo(1);
+
+        assertThat(notificationRepository.count()).isZero();
+        assertThat(archiveRepository.count()).isZero();
+    }
+
+    private static Notification notification(User user, LocalDateTime readAt) {
+        return Notification.builder()
+                .user(user)
+                .type("REQUEST_ACCEPTED")
+                .message("Owner accepted your request for 'Dune'")
+                .isRead(readAt != null)
+                .readAt(readAt)
+                .build();
+    }
+}
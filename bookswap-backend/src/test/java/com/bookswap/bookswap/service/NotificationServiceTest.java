@@ -0,0 +1,147 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.model.Notification;
+import com.bookswap.bookswap.model.NotificationOutbox;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.NotificationRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotificationService.class, UnreadCountTracker.class, NotificationServiceTest.Metrics.class})
+class NotificationServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        notificationRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void requestsForTheSameBookAreCoalescedIntoOneUnreadNotification() {
+        User owner = userRepository.save(user("owner@example.com"));
+
+        notificationService.createNotifications(List.of(
+                request(owner, 20L, 1L, "Ann"), request(owner, 20L, 2L, "Bob"), request(owner, 21L, 3L, "Cy")));
+        notificationService.createNotifications(List.of(request(owner, 20L, 4L, "Dee")));
+
+        assertThat(notificationRepository.findAll())
+                .hasSize(2)
+                .anySatisfy(notification -> {
+                    assertThat(notification.getRelatedBookId()).isEqualTo(20L);
+                    assertThat(notification.getAggregateCount()).isEqualTo(3);
+                    assertThat(notification.getMessage()).isEqualTo("3 people requested your book 'Book 20'");
+                    assertThat(notification.getRelatedSwapRequestId()).isEqualTo(4L);
+                })
+                .anySatisfy(notification -> {
+                    assertThat(notification.getRelatedBookId()).isEqualTo(21L);
+                    assertThat(notification.getAggregateCount()).isEqualTo(1);
+                    assertThat(notification.getMessage()).isEqualTo("Cy requested your book 'Book 21'");
+                });
+        assertThat(notificationService.getUnreadCount(owner)).isEqualTo(2);
+    }
+
+    @Test
+    void readNotificationsAndOtherTypesAreNeverMergedInto() {
+        User owner = userRepository.save(user("reader@example.com"));
+        notificationService.createNotifications(List.of(request(owner, 30L, 1L, "Ann")));
+        notificationService.markAllAsRead(owner);
+
+        notificationService.createNotifications(List.of(request(owner, 30L, 2L, "Bob"),
+                NotificationOutbox.builder()
+                        .recipientId(owner.getId())
+                        .type("REQUEST_ACCEPTED")
+                        .message("Ann accepted your request for 'Book 30'")
+                        .relatedSwapRequestId(3L)
+                        .relatedBookId(30L)
+                        .nextAttemptAt(LocalDateTime.now())
+                        .build()));
+
+        assertThat(notificationRepository.findAll())
+                .hasSize(3)
+                .extracting(Notification::getAggregateCount)
+                .containsOnly(1);
+    }
+
+    @Test
+    void mergingKeepsCreatedAtAndMovesLastEventAt() {
+        User owner = userRepository.save(user("steady@example.com"));
+        notificationService.createNotifications(List.of(request(owner, 40L, 1L, "Ann")));
+        Notification first = notificationRepository.findAll().get(0);
+
+        notificationService.createNotifications(List.of(request(owner, 40L, 2L, "Bob")));
+
+        Notification merged = notificationRepository.findById(first.getId()).orElseThrow();
+        assertThat(merged.getAggregateCount()).isEqualTo(2);
+        assertThat(merged.getCreatedAt()).isEqualTo(first.getCreatedAt());
+        assertThat(merged.getLastEventAt()).isAfterOrEqualTo(first.getLastEventAt());
+    }
+
+    @Test
+    void mergeNeverUndoesAConcurrentMarkAsRead() {
+        User owner = userRepository.save(user("racer@example.com"));
+        notificationService.createNotifications(List.of(request(owner, 50L, 1L, "Ann")));
+        Notification target = notificationRepository.findAll().get(0);
+
+        // The target was picked while unread, then read before the merge ran
+        notificationService.markAllAsRead(owner);
+        Integer merged = transactionTemplate.execute(status -> notificationRepository.mergeInto(
+                target.getId(), 1, " people requested your book 'Book 50'", 2L, LocalDateTime.now()));
+
+        assertThat(merged).isZero();
+        Notification stored = notificationRepository.findById(target.getId()).orElseThrow();
+        assertThat(stored.getIsRead()).isTrue();
+        assertThat(stored.getReadAt()).isNotNull();
+        assertThat(stored.getAggregateCount()).isEqualTo(1);
+    }
+
+    private static NotificationOutbox request(User owner, Long bookId, Long swapRequestId, String requesterName) {
+        return NotificationOutbox.builder()
+                .recipientId(owner.getId())
+                .type("NEW_REQUEST")
+                .message(requesterName + " requested your book 'Book " + bookId + "'")
+                .relatedSwapRequestId(swapRequestId)
+                .relatedBookId(bookId)
+                .relatedBookTitle("Book " + bookId)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.bookswap.bookswap.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.bookswap.bookswap.TestFixtures.awaitUntil;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class NotificationStreamRegistryTest {
+
+    private final NotificationStreamRegistry registry =
+            new NotificationStreamRegistry(mock(UnreadCountTracker.class), 60_000, 2, 2, 200);
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void eventsReachEveryStreamOfTheRecipientOnly() {
+        List<String> firstTab = new CopyOnWriteArrayList<>();
+        List<String> secondTab = new CopyOnWriteArrayList<>();
+        List<String> otherUser = new CopyOnWriteArrayList<>();
+        registry.register(1L, event -> firstTab.add(event.name()), () -> { });
+        registry.register(1L, event -> secondTab.add(event.name()), () -> { });
+        registry.register(2L, event -> otherUser.add(event.name()), () -> { });
+
+        registry.publish(1L, new NotificationStreamRegistry.StreamEvent("notification", "hello"));
+
+        awaitUntil(() -> firstTab.size() == 1 && secondTab.size() == 1);
+        assertThat(firstTab).containsExactly("notification");
+        assertThat(otherUser).isEmpty();
+    }
+
+    @Test
+    void overflowingBufferCollapsesIntoResync() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        registry.register(1L, event -> {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event.name());
+        }, () -> { });
+
+        registry.publish(1L, new NotificationStreamRegistry.StreamEvent("notification", 1));
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        // The first event is being written; three more don't fit a buffer of two
+        for (int i = 2; i <= 4; i++) {
+            registry.publish(1L, new NotificationStreamRegistry.StreamEvent("notification", i));
+        }
+        release.countDown();
+
+        awaitUntil(() -> received.size() == 2);
+        assertThat(received).containsExactly("notification", "resync");
+    }
+
+    @Test
+    void stalledClientDoesNotHoldUpOtherStreamsAndIsEvicted() throws Exception {
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean stalledClosed = new AtomicBoolean();
+        registry.register(1L, event -> {
+            stalled.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> stalledClosed.set(true));
+        registry.publish(1L, new NotificationStreamRegistry.StreamEvent("notification", "stuck"));
+        assertThat(stalled.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Several healthy users keep receiving while the first write never returns
+        List<List<String>> others = new CopyOnWriteArrayList<>();
+        for (long userId = 2; userId <= 5; userId++) {
+            List<String> received = new CopyOnWriteArrayList<>();
+            others.add(received);
+            registry.register(userId, event -> received.add(event.name()), () -> { });
+            registry.publish(userId, new NotificationStreamRegistry.StreamEvent("notification", "hello"));
+        }
+        awaitUntil(() -> others.stream().allMatch(received -> received.size() == 1));
+
+        Thread.sleep(250);
+        registry.evictStalledStreams();
+        assertThat(stalledClosed).isTrue();
+        assertThat(registry.streamCount()).isEqualTo(4);
+        release.countDown();
+    }
+
+    @Test
+    void failedWriteClosesAndForgetsTheStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        registry.register(1L, event -> {
+            throw new IOException("Broken pipe");
+        }, () -> closed.set(true));
+
+        registry.sendHeartbeats();
+
+        awaitUntil(closed::get);
+        awaitUntil(() -> registry.streamCount() == 0);
+    }
+
+    @Test
+    void oldestStreamIsClosedPastThePerUserLimit() {
+        AtomicBoolean firstClosed = new AtomicBoolean();
+        registry.register(1L, event -> { }, () -> firstClosed.set(true));
+        registry.register(1L, event -> { }, () -> { });
+        registry.register(1L, event -> { }, () -> { });
+
+        assertThat(firstClosed).isTrue();
+        assertThat(registry.streamCount()).isEqualTo(2);
+    }
+
+    @Test
+    void streamOpenedWhileTheLastOneClosesKeepsReceivingEvents() {
+        // The failing stream is unregistered on the sender thread while the new one registers
+        for (int user = 1; user <= 200; user++) {
+            long userId = 100L + user;
+            registry.register(userId, event -> {
+                throw new IOException("Broken pipe");
+            }, () -> { });
+            registry.publish(userId, NotificationStreamRegistry.HEARTBEAT);
+            List<String> received = new CopyOnWriteArrayList<>();
+            registry.register(userId, event -> received.add(event.name()), () -> { });
+
+            int streams = user;
+            awaitUntil(() -> registry.streamCount() == streams);
+            registry.publish(userId, new NotificationStreamRegistry.StreamEvent("notification", "hello"));
+            awaitUntil(() -> received.contains("notification"));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.dto.BulkSwapRequestResultDTO;
+import com.bookswap.bookswap.dto.BulkSwapRequestUpdateDTO;
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.event.SwapRequestChangedEvent;
+import com.bookswap.bookswap.event.SwapRequestsChangedEvent;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.SwapRequest;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Accepts race on real threads and real commits, so the test-managed transaction is switched off
+@DataJpaTest(properties = "book.photo.upload-dir=./target/test-uploads")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SwapRequestService.class, BookService.class, BookGeoIndex.class, BookSearchIndex.class, BookFacetIndex.class,
+        SwapAcceptanceConcurrencyTest.CommittedEvents.class})
+class SwapAcceptanceConcurrencyTest {
+
+    private static final int REQUESTS = 8;
+
+    // Collects the swap changes that actually committed, i.e. what the outbox would deliver
+    static class CommittedEvents {
+        final List<SwapRequestChangedEvent> events = new CopyOnWriteArrayList<>();
+
+        @TransactionalEventListener
+        void onCommitted(SwapRequestChangedEvent event) {
+            events.add(event);
+        }
+
+        @TransactionalEventListener
+        void onCommitted(SwapRequestsChangedEvent event) {
+            events.addAll(event.changes());
+        }
+    }
+
+    @Autowired
+    private SwapRequestService swapRequestService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SwapRequestRepository swapRequestRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommittedEvents committedEvents;
+
+    @MockitoBean
+    private FileStorageService fileStorageService;
+
+    @AfterEach
+    void cleanUp() {
+        committedEvents.events.clear();
+        swapRequestRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentAcceptsForOneBookLetExactlyOneWin() throws Exception {
+        User owner = userRepository.save(user("owner@example.com"));
+        Book book = bookRepository.save(book(owner));
+        List<SwapRequest> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            User requester = userRepository.save(user("requester-" + i + "@example.com"));
+            requests.add(swapRequestRepository.save(SwapRequest.builder()
+                    .book(book).requester(requester).owner(owner).status(SwapRequestStatus.PENDING).build()));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> outcomes = new ArrayList<>();
+        List<HttpStatusCode> loserStatuses = new CopyOnWriteArrayList<>();
+        for (SwapRequest request : requests) {
+            Callable<Boolean> accept = () -> {
+                start.await();
+                try {
+                    swapRequestService.updateSwapRequestStatus(request.getId(), SwapRequestStatus.ACCEPTED, owner);
+                    return true;
+                } catch (ResponseStatusException e) {
+                    // Lost the race: the book is taken, the request was declined, or retries ran out
+                    loserStatuses.add(e.getStatusCode());
+                    return false;
+                }
+            };
+            outcomes.add(pool.submit(accept));
+        }
+        start.countDown();
+
+        int winners = 0;
+        for (Future<Boolean> outcome : outcomes) {
+            if (outcome.get(30, TimeUnit.SECONDS)) {
+                winners++;
+            }
+        }
+        pool.shutdown();
+
+        assertThat(winners).isEqualTo(1);
+        assertThat(loserStatuses).hasSize(REQUESTS - 1).containsOnly(HttpStatus.CONFLICT);
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getStatus()).isEqualTo(BookStatus.LENT_OUT);
+        List<SwapRequest> stored = swapRequestRepository.findAll();
+        assertThat(stored).filteredOn(r -> r.getStatus() == SwapRequestStatus.ACCEPTED).hasSize(1);
+        assertThat(stored).filteredOn(r -> r.getStatus() == SwapRequestStatus.DECLINED).hasSize(REQUESTS - 1);
+        // Every requester hears exactly once: the winner's acceptance and everyone else's decline
+        assertThat(committedEvents.events)
+                .extracting(SwapRequestChangedEvent::requesterId)
+                .doesNotHaveDuplicates()
+                .hasSize(REQUESTS);
+    }
+
+    @Test
+    void acceptingDeclinesTheOtherPendingRequestsInOneGo() {
+        User owner = userRepository.save(user("lender@example.com"));
+        Book book = bookRepository.save(book(owner));
+        User first = userRepository.save(user("first@example.com"));
+        User second = userRepository.save(user("second@example.com"));
+        SwapRequest accepted = swapRequestRepository.save(SwapRequest.builder()
+                .book(book).requester(first).owner(owner).status(SwapRequestStatus.PENDING).build());
+        SwapRequest other = swapRequestRepository.save(SwapRequest.builder()
+                .book(book).requester(second).owner(owner).status(SwapRequestStatus.PENDING).build());
+
+        swapRequestService.updateSwapRequestStatus(accepted.getId(), SwapRequestStatus.ACCEPTED, owner);
+
+        SwapRequest declined = swapRequestRepository.findById(other.getId()).orElseThrow();
+        assertThat(declined.getStatus()).isEqualTo(SwapRequestStatus.DECLINED);
+        assertThat(declined.getVersion()).isGreaterThan(other.getVersion());
+        assertThat(committedEvents.events)
+                .extracting(event -> event.requesterId() + ":" + event.status())
+                .containsExactlyInAnyOrder(first.getId() + ":ACCEPTED", second.getId() + ":DECLINED");
+    }
+
+    @Test
+    void ownerCanOnlyAcceptOrDecline() {
+        User owner = userRepository.save(user("keeper@example.com"));
+        User requester = userRepository.save(user("asker@example.com"));
+        Book book = bookRepository.save(book(owner));
+        SwapRequest request = swapRequestRepository.save(SwapRequest.builder()
+                .book(book).requester(requester).owner(owner).status(SwapRequestStatus.PENDING).build());
+
+        for (SwapRequestStatus status : List.of(SwapRequestStatus.PENDING, SwapRequestStatus.CANCELLED)) {
+            assertThatThrownBy(() -> swapRequestService.updateSwapRequestStatus(request.getId(), status, owner))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+
+        SwapRequest stored = swapRequestRepository.findById(request.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(SwapRequestStatus.PENDING);
+        assertThat(stored.getVersion()).isEqualTo(request.getVersion());
+        assertThat(committedEvents.events).isEmpty();
+    }
+
+    @Test
+    void bulkUpdateAppliesValidItemsAndReportsTheRest() {
+        User owner = userRepository.save(user("shelf@example.com"));
+        User stranger = userRepository.save(user("stranger@example.com"));
+        Book dune = bookRepository.save(book(owner));
+        Book emma = bookRepository.save(book(owner));
+        Book foreign = bookRepository.save(book(stranger));
+        User ann = userRepository.save(user("ann@example.com"));
+        User bob = userRepository.save(user("bob@example.com"));
+        User cy = userRepository.save(user("cy@example.com"));
+        SwapRequest annDune = pending(dune, ann, owner);
+        SwapRequest bobDune = pending(dune, bob, owner);
+        SwapRequest cyDune = pending(dune, cy, owner);
+        SwapRequest annEmma = pending(emma, ann, owner);
+        SwapRequest notMine = pending(foreign, bob, stranger);
+
+        List<BulkSwapRequestResultDTO> results = swapRequestService.updateSwapRequestStatuses(List.of(
+                item(annDune, SwapRequestStatus.ACCEPTED),
+                item(bobDune, SwapRequestStatus.ACCEPTED),
+                item(annEmma, SwapRequestStatus.DECLINED),
+                item(annEmma, SwapRequestStatus.DECLINED),
+                item(notMine, SwapRequestStatus.DECLINED),
+                item(cyDune, SwapRequestStatus.CANCELLED)), owner);
+
+        assertThat(results).extracting(BulkSwapRequestResultDTO::isApplied)
+                .containsExactly(true, false, true, false, false, false);
+        assertThat(results).extracting(BulkSwapRequestResultDTO::getStatus).containsExactly(
+                SwapRequestStatus.ACCEPTED, SwapRequestStatus.DECLINED, SwapRequestStatus.DECLINED,
+                SwapRequestStatus.DECLINED, null, SwapRequestStatus.DECLINED);
+        assertThat(results.get(3).getError()).isEqualTo("This request is listed more than once.");
+        assertThat(results.get(5).getError()).isEqualTo("Declined because another request for this book was accepted.");
+        assertThat(bookRepository.findById(dune.getId()).orElseThrow().getStatus()).isEqualTo(BookStatus.LENT_OUT);
+        assertThat(bookRepository.findById(emma.getId()).orElseThrow().getStatus()).isEqualTo(BookStatus.AVAILABLE);
+        // Accepting Dune declined its other pending requests, including the ones whose item was rejected
+        assertThat(swapRequestRepository.findAll())
+                .extracting(request -> request.getId() + ":" + request.getStatus())
+                .containsExactlyInAnyOrder(annDune.getId() + ":ACCEPTED", bobDune.getId() + ":DECLINED",
+                        cyDune.getId() + ":DECLINED", annEmma.getId() + ":DECLINED", notMine.getId() + ":PENDING");
+        assertThat(committedEvents.events).hasSize(4);
+    }
+
+    @Test
+    void secondAcceptForTheSameBookIsReportedAsDeclined() {
+        User owner = userRepository.save(user("twice@example.com"));
+        Book book = bookRepository.save(book(owner));
+        SwapRequest first = pending(book, userRepository.save(user("dee@example.com")), owner);
+        SwapRequest second = pending(book, userRepository.save(user("eve@example.com")), owner);
+
+        List<BulkSwapRequestResultDTO> results = swapRequestService.updateSwapRequestStatuses(List.of(
+                item(first, SwapRequestStatus.ACCEPTED), item(second, SwapRequestStatus.ACCEPTED)), owner);
+
+        assertThat(results.get(0).isApplied()).isTrue();
+        assertThat(results.get(0).getStatus()).isEqualTo(SwapRequestStatus.ACCEPTED);
+        assertThat(results.get(1))
+                .satisfies(result -> {
+                    assertThat(result.isApplied()).isFalse();
+                    assertThat(result.getStatus()).isEqualTo(SwapRequestStatus.DECLINED);
+                    assertThat(result.getError()).isEqualTo("Declined because another request for this book was accepted.");
+                });
+        assertThat(swapRequestRepository.findById(second.getId()).orElseThrow().getStatus()).isEqualTo(SwapRequestStatus.DECLINED);
+    }
+
+    private SwapRequest pending(Book book, User requester, User owner) {
+        return swapRequestRepository.save(SwapRequest.builder()
+                .book(book).requester(requester).owner(owner).status(SwapRequestStatus.PENDING).build());
+    }
+
+    private static BulkSwapRequestUpdateDTO.Item item(SwapRequest request, SwapRequestStatus status) {
+        BulkSwapRequestUpdateDTO.Item item = new BulkSwapRequestUpdateDTO.Item();
+        item.setRequestId(request.getId());
+        item.setStatus(status);
+        return item;
+    }
+
+    private static Book book(User owner) {
+        return Book.builder()
+                .title("Dune")
+                .author("Frank Herbert")
+                .genre("Science Fiction")
+                .language("English")
+                .bookCondition(BookCondition.GOOD)
+                .latitude(52.52)
+                .longitude(13.40)
+                .status(BookStatus.AVAILABLE)
+                .owner(owner)
+                .build();
+    }
+}
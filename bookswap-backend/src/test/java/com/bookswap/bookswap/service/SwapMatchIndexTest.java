@@ -0,0 +1,193 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.dto.SwapMatchDTO;
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.SwapRequest;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The index is a shared singleton in the cached context, so each test uses its own id range
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SwapMatchIndex.class, SwapMatchService.class})
+class SwapMatchIndexTest {
+
+    @Autowired
+    private SwapMatchIndex index;
+
+    @Autowired
+    private SwapMatchService swapMatchService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SwapRequestRepository swapRequestRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        swapRequestRepository.findAll().forEach(request -> index.remove(request.getId()));
+        swapRequestRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void findsRingsOfTwoToFourUsersShortestFirst() {
+        // 1 <-> 2, 1 -> 3 -> 4 -> 1, 1 -> 5 -> 6 -> 7 -> 1, and a dead end 1 -> 8
+        index.add(1001, 1, 2);
+        index.add(1002, 2, 1);
+        index.add(1003, 1, 3);
+        index.add(1004, 3, 4);
+        index.add(1005, 4, 1);
+        index.add(1006, 1, 5);
+        index.add(1007, 5, 6);
+        index.add(1008, 6, 7);
+        index.add(1009, 7, 1);
+        index.add(1010, 1, 8);
+
+        assertThat(index.cyclesFor(1, 10))
+                .extracting(SwapMatchIndex.Cycle::requestIds)
+                .containsExactly(new long[]{1001, 1002}, new long[]{1003, 1004, 1005}, new long[]{1006, 1007, 1008, 1009});
+        assertThat(index.cyclesFor(4, 10))
+                .extracting(SwapMatchIndex.Cycle::requestIds)
+                .containsExactly(new long[]{1005, 1003, 1004});
+        assertThat(index.cyclesFor(8, 10)).isEmpty();
+
+        // Resolving a request breaks its ring right away
+        index.remove(1004);
+        assertThat(index.cyclesFor(1, 10)).hasSize(2);
+
+        for (long requestId = 1001; requestId <= 1010; requestId++) {
+            index.remove(requestId);
+        }
+    }
+
+    @Test
+    void parallelRequestsShareOneEdgeUntilTheLastIsResolved() {
+        index.add(2001, 21, 22);
+        index.add(2002, 21, 22);
+        index.add(2003, 22, 21);
+
+        assertThat(index.cyclesFor(21, 10)).hasSize(1);
+        index.remove(2002);
+        assertThat(index.cyclesFor(21, 10))
+                .extracting(SwapMatchIndex.Cycle::requestIds)
+                .containsExactly(new long[]{2001, 2003});
+        index.remove(2001);
+        assertThat(index.cyclesFor(21, 10)).isEmpty();
+
+        index.remove(2003);
+    }
+
+    @Test
+    void hopFallsBackToAnotherRequestWhenTheLatestBookIsGone() {
+        User dee = userRepository.save(user("dee@example.com"));
+        User eli = userRepository.save(user("eli@example.com"));
+        pending(bookRepository.save(book(eli, "Middlemarch")), dee);
+        Book lentOut = bookRepository.save(book(eli, "Persuasion"));
+        pending(lentOut, dee);
+        pending(bookRepository.save(book(dee, "Walden")), eli);
+        index.rebuild();
+
+        // The latest request on dee -> eli is for a book that has since been lent out
+        lentOut.setStatus(BookStatus.LENT_OUT);
+        bookRepository.save(lentOut);
+
+        assertThat(swapMatchService.getSuggestedMatches(dee)).singleElement().satisfies(match -> assertThat(match.getHops())
+                .extracting(SwapMatchDTO.Hop::getBookTitle)
+                .containsExactly("Middlemarch", "Walden"));
+    }
+
+    @Test
+    void largeGraphIsSearchedWithinTheLimit() {
+        // 300,000 users in a chain of requests, closed into a three-user ring at every third user
+        int users = 300_000;
+        long requestId = 3_000_000;
+        for (int user = 0; user + 1 < users; user++) {
+            index.add(requestId++, 3_000_000L + user, 3_000_000L + user + 1);
+            if (user % 3 == 0 && user + 2 < users) {
+                index.add(requestId++, 3_000_000L + user + 2, 3_000_000L + user);
+            }
+        }
+
+        long started = System.nanoTime();
+        List<SwapMatchIndex.Cycle> cycles = index.cyclesFor(3_000_000L, 5);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertThat(cycles)
+                .singleElement()
+                .satisfies(cycle -> assertThat(cycle.requestIds()).hasSize(3));
+        // Generous for slow CI machines; a search that walked the whole chain would take far longer
+        assertThat(elapsedMillis).isLessThan(1000);
+
+        for (long id = 3_000_000; id < requestId; id++) {
+            index.remove(id);
+        }
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void suggestionsAreRecheckedAgainstTheDatabase() {
+        User ann = userRepository.save(user("ann@example.com"));
+        User bob = userRepository.save(user("bob@example.com"));
+        User cy = userRepository.save(user("cy@example.com"));
+        pending(bookRepository.save(book(bob, "Dune")), ann);
+        SwapRequest bobWantsCys = pending(bookRepository.save(book(cy, "Emma")), bob);
+        pending(bookRepository.save(book(ann, "Ulysses")), cy);
+        index.rebuild();
+
+        List<SwapMatchDTO> matches = swapMatchService.getSuggestedMatches(ann);
+        assertThat(matches).singleElement().satisfies(match -> {
+            assertThat(match.getSize()).isEqualTo(3);
+            assertThat(match.getHops())
+                    .extracting(hop -> hop.getRequesterName() + " wants " + hop.getOwnerName() + "'s " + hop.getBookTitle())
+                    .containsExactly("ann wants bob's Dune", "bob wants cy's Emma", "cy wants ann's Ulysses");
+        });
+
+        // Changed behind the index's back: the ring is dropped and the stale edge removed
+        bobWantsCys.setStatus(SwapRequestStatus.DECLINED);
+        swapRequestRepository.save(bobWantsCys);
+        assertThat(swapMatchService.getSuggestedMatches(ann)).isEmpty();
+        assertThat(index.cyclesFor(ann.getId(), 10)).isEmpty();
+    }
+
+    private SwapRequest pending(Book book, User requester) {
+        return swapRequestRepository.save(SwapRequest.builder()
+                .book(book).requester(requester).owner(book.getOwner()).status(SwapRequestStatus.PENDING).build());
+    }
+
+    private static Book book(User owner, String title) {
+        return Book.builder()
+                .title(title)
+                .author("Author")
+                .genre("Fiction")
+                .language("English")
+                .bookCondition(BookCondition.GOOD)
+                .latitude(52.52)
+                .longitude(13.40)
+                .status(BookStatus.AVAILABLE)
+                .owner(owner)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.config.H2PendingRequestIndex;
+import com.bookswap.bookswap.enums.BookCondition;
+import com.bookswap.bookswap.enums.BookStatus;
+import com.bookswap.bookswap.enums.SwapRequestStatus;
+import com.bookswap.bookswap.model.Book;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.BookRepository;
+import com.bookswap.bookswap.repository.SwapRequestRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Real commits, so the unique index is what rejects duplicates rather than a pre-read
+@DataJpaTest(properties = "book.photo.upload-dir=./target/test-uploads")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SwapRequestService.class, BookService.class, BookGeoIndex.class, BookSearchIndex.class, BookFacetIndex.class,
+        H2PendingRequestIndex.class})
+class SwapRequestServiceTest {
+
+    @Autowired
+    private SwapRequestService swapRequestService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SwapRequestRepository swapRequestRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private FileStorageService fileStorageService;
+
+    @AfterEach
+    void cleanUp() {
+        swapRequestRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void secondPendingRequestForTheSameBookIsRejected() {
+        User owner = userRepository.save(user("owner@example.com"));
+        User requester = userRepository.save(user("requester@example.com"));
+        Book book = bookRepository.save(book(owner));
+        swapRequestService.createSwapRequest(book.getId(), requester);
+
+        assertThatThrownBy(() -> swapRequestService.createSwapRequest(book.getId(), requester))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("You already have a pending request for this book.");
+        assertThat(swapRequestRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void declinedRequestDoesNotBlockANewOne() {
+        User owner = userRepository.save(user("lender@example.com"));
+        User requester = userRepository.save(user("borrower@example.com"));
+        Book book = bookRepository.save(book(owner));
+        Long first = swapRequestService.createSwapRequest(book.getId(), requester).getId();
+        swapRequestService.updateSwapRequestStatus(first, SwapRequestStatus.DECLINED, owner);
+
+        swapRequestService.createSwapRequest(book.getId(), requester);
+
+        assertThat(swapRequestRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentDuplicateSubmitsCreateOneRequest() throws Exception {
+        User owner = userRepository.save(user("popular@example.com"));
+        User requester = userRepository.save(user("eager@example.com"));
+        Book book = bookRepository.save(book(owner));
+
+        int submits = 6;
+        ExecutorService pool = Executors.newFixedThreadPool(submits);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> outcomes = new ArrayList<>();
+        for (int i = 0; i < submits; i++) {
+            outcomes.add(pool.submit(() -> {
+                start.await();
+                try {
+                    swapRequestService.createSwapRequest(book.getId(), requester);
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int created = 0;
+        for (Future<Boolean> outcome : outcomes) {
+            if (outcome.get(30, TimeUnit.SECONDS)) {
+                created++;
+            }
+        }
+        pool.shutdown();
+
+        assertThat(created).isEqualTo(1);
+        assertThat(swapRequestRepository.count()).isEqualTo(1);
+    }
+
+    private static Book book(User owner) {
+        return Book.builder()
+                .title("Dune")
+                .author("Frank Herbert")
+                .genre("Science Fiction")
+                .language("English")
+                .bookCondition(BookCondition.GOOD)
+                .latitude(52.52)
+                .longitude(13.40)
+                .status(BookStatus.AVAILABLE)
+                .owner(owner)
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.event.NotificationCreatedEvent;
+import com.bookswap.bookswap.event.UnreadCountChangedEvent;
+import com.bookswap.bookswap.model.Notification;
+import com.bookswap.bookswap.model.NotificationOutbox;
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.NotificationRepository;
+import com.bookswap.bookswap.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs without the test-managed transaction so the counters see real commits
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotificationService.class, UnreadCountTracker.class, UnreadCountTrackerTest.Metrics.class})
+class UnreadCountTrackerTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UnreadCountTracker tracker;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        notificationRepository.deleteAll();
+        userRepository.deleteAll();
+        tracker.reconcile();
+    }
+
+    @Test
+    void counterIsSeededFromTheTableAndFollowsCommittedChanges() {
+        User reader = userRepository.save(user("reader@example.com"));
+        notificationRepository.save(notification(reader));
+        notificationRepository.save(notification(reader));
+
+        assertThat(tracker.get(reader.getId())).isEqualTo(2);
+
+        notificationService.createNotifications(List.of(entry(reader.getId())));
+        assertThat(notificationService.getUnreadCount(reader)).isEqualTo(3);
+
+        Long firstId = notificationRepository.findAll().get(0).getId();
+        notificationService.markAsRead(firstId, reader);
+        assertThat(notificationService.getUnreadCount(reader)).isEqualTo(2);
+
+        // Reading an already-read notification leaves the count alone
+        notificationService.markAsRead(firstId, reader);
+        assertThat(notificationService.getUnreadCount(reader)).isEqualTo(2);
+
+        assertThat(notificationService.markAllAsRead(reader)).isEqualTo(2);
+        assertThat(notificationService.getUnreadCount(reader)).isZero();
+        assertThat(notificationService.markAllAsRead(reader)).isZero();
+    }
+
+    @Test
+    void markingSomeoneElsesNotificationIsDeniedAndChangesNothing() {
+        User owner = userRepository.save(user("owner@example.com"));
+        User intruder = userRepository.save(user("intruder@example.com"));
+        Notification notification = notificationRepository.save(notification(owner));
+        assertThat(tracker.get(owner.getId())).isEqualTo(1);
+
+        assertThatThrownBy(() -> notificationService.markAsRead(notification.getId(), intruder))
+                .isInstanceOf(AccessDeniedException.class);
+
+        assertThat(notificationRepository.findById(notification.getId()).orElseThrow().getIsRead()).isFalse();
+        assertThat(tracker.get(owner.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void reconciliationHealsCountersThatDrifted() {
+        User reader = userRepository.save(user("drift@example.com"));
+        assertThat(tracker.get(reader.getId())).isZero();
+
+        // Written behind the service's back, so the counter doesn't see it
+        notificationRepository.save(notification(reader));
+        assertThat(tracker.get(reader.getId())).isZero();
+
+        tracker.reconcile();
+
+        assertThat(tracker.get(reader.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void reconciliationSkipsCountersThatMoveWhileItCounts() {
+        NotificationRepository repository = mock(NotificationRepository.class);
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        UnreadCountTracker isolated = new UnreadCountTracker(repository, publisher, 3_600_000, new SimpleMeterRegistry());
+        when(repository.countByUserIdAndIsReadFalse(7L)).thenReturn(0L);
+        assertThat(isolated.get(7L)).isZero();
+
+        // A notification commits after the grouped count has read the table, so the count misses it
+        when(repository.countUnreadByUserIds(anyCollection())).thenAnswer(invocation -> {
+            isolated.onNotificationCreated(new NotificationCreatedEvent(7L, null, false));
+            return List.of();
+        });
+        isolated.reconcile();
+
+        assertThat(isolated.get(7L)).isEqualTo(1);
+        verify(publisher, never()).publishEvent(any(UnreadCountChangedEvent.class));
+    }
+
+    private static Notification notification(User user) {
+        return Notification.builder()
+                .user(user)
+                .type("NEW_REQUEST")
+                .message("Someone requested your book 'Dune'")
+                .isRead(false)
+                .build();
+    }
+
+    private static NotificationOutbox entry(Long recipientId) {
+        return NotificationOutbox.builder()
+                .recipientId(recipientId)
+                .type("REQUEST_ACCEPTED")
+                .message("Owner accepted your request for 'Dune'")
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
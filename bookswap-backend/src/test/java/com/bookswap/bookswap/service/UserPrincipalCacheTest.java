@@ -0,0 +1,128 @@
+package com.bookswap.bookswap.service;
+
+import com.bookswap.bookswap.model.User;
+import com.bookswap.bookswap.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.bookswap.bookswap.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The cache (and its meters) is shared across tests in the cached context, so counts are compared as deltas.
+// Evictions run after commit, so the tests commit for real and clean up afterwards.
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserPrincipalCache.class, UserPrincipalCacheTest.Metrics.class})
+class UserPrincipalCacheTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedLoadsAreServedFromTheCache() {
+        userRepository.saveAndFlush(user("reader@example.com"));
+        double hitsBefore = hits();
+        double missesBefore = misses();
+
+        User first = userPrincipalCache.load("reader@example.com");
+        User second = userPrincipalCache.load("reader@example.com");
+
+        assertThat(second).isSameAs(first);
+        assertThat(misses() - missesBefore).isEqualTo(1);
+        assertThat(hits() - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void updatingTheUserEvictsTheCachedPrincipal() {
+        User saved = userRepository.saveAndFlush(user("writer@example.com"));
+        userPrincipalCache.load("writer@example.com");
+        double missesBefore = misses();
+
+        saved.setPassword("new-hash");
+        userRepository.saveAndFlush(saved);
+
+        assertThat(userPrincipalCache.load("writer@example.com").getPassword()).isEqualTo("new-hash");
+        assertThat(misses() - missesBefore).isEqualTo(1);
+    }
+
+    @Test
+    void evictionWaitsForTheCommit() {
+        userRepository.saveAndFlush(user("patient@example.com"));
+        userPrincipalCache.load("patient@example.com");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = userRepository.findByEmail("patient@example.com").orElseThrow();
+            user.setPassword("new-hash");
+            userRepository.flush();
+            // Not committed yet, so other requests still see the old principal
+            assertThat(userPrincipalCache.load("patient@example.com").getPassword()).isEqualTo("hash");
+        });
+
+        assertThat(userPrincipalCache.load("patient@example.com").getPassword()).isEqualTo("new-hash");
+    }
+
+    @Test
+    void changingTheEmailEvictsTheOldKey() {
+        User saved = userRepository.saveAndFlush(user("old@example.com"));
+        userPrincipalCache.load("old@example.com");
+
+        saved.setEmail("new@example.com");
+        userRepository.saveAndFlush(saved);
+
+        assertThatThrownBy(() -> userPrincipalCache.load("old@example.com"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(userPrincipalCache.load("new@example.com").getId()).isEqualTo(saved.getId());
+    }
+
+    @Test
+    void unknownEmailIsNotCached() {
+        assertThatThrownBy(() -> userPrincipalCache.load("nobody@example.com"))
+                .isInstanceOf(UsernameNotFoundException.class);
+
+        userRepository.saveAndFlush(user("nobody@example.com"));
+
+        assertThat(userPrincipalCache.load("nobody@example.com").getEmail()).isEqualTo("nobody@example.com");
+    }
+
+    private double hits() {
+        return meterRegistry.get("auth.principal-cache.hits").functionCounter().count();
+    }
+
+    private double misses() {
+        return meterRegistry.get("auth.principal-cache.misses").functionCounter().count();
+    }
+}
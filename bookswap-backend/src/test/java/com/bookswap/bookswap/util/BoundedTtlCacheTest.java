@@ -0,0 +1,67 @@
+package com.bookswap.bookswap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedTtlCacheTest {
+
+    @Test
+    void entriesExpireAfterTheirTtl() throws Exception {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 50);
+        cache.put("berlin", "Berlin");
+        cache.put("paris", "Paris", System.currentTimeMillis() + 60_000);
+
+        assertThat(cache.get("berlin")).isEqualTo("Berlin");
+        Thread.sleep(80);
+
+        assertThat(cache.get("berlin")).isNull();
+        assertThat(cache.get("paris")).isEqualTo("Paris");
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void alreadyExpiredEntriesAreNotStored() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60_000);
+
+        cache.put("berlin", "Berlin", System.currentTimeMillis() - 1);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get("berlin")).isNull();
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedPastTheLimit() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, 60_000);
+        cache.put("a", "A");
+        cache.put("b", "B");
+
+        // Reading "a" makes "b" the least recently used
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.get("c")).isEqualTo("C");
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void forEachVisitsOnlyLiveEntries() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60_000);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.invalidate("b");
+
+        Map<String, String> visited = new HashMap<>();
+        cache.forEach((key, value, expiresAt) -> visited.put(key, value));
+
+        assertThat(visited).containsExactly(Map.entry("a", "A"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.bookswap.bookswap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DistanceBatchTest {
+
+    private static final double TOLERANCE_KM = 1e-6;
+
+    @Test
+    void distancesMatchHaversineUtil() {
+        Random random = new Random(42);
+        double[][] points = randomPoints(random, 5000, -90, 90, -180, 180);
+        DistanceBatch batch = batchOf(points);
+
+        for (int origin = 0; origin < 20; origin++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lng = random.nextDouble() * 360 - 180;
+            double[] distances = batch.distancesFrom(lat, lng);
+            for (int i = 0; i < points.length; i++) {
+                assertThat(distances[i]).isCloseTo(
+                        HaversineUtil.calculateDistance(lat, lng, points[i][0], points[i][1]), within(TOLERANCE_KM));
+            }
+        }
+    }
+
+    @Test
+    void withinMatchesBruteForceIncludingPolesAndAntimeridian() {
+        Random random = new Random(7);
+        double[][] points = randomPoints(random, 5000, -90, 90, -180, 180);
+        DistanceBatch batch = batchOf(points);
+        double[][] origins = {{6.9271, 79.8612}, {0, 179.9}, {0, -179.9}, {89.9, 0}, {-89.5, 120}, {51.5, -0.1}};
+
+        for (double[] origin : origins) {
+            for (double radiusKm : new double[]{1, 50, 500, 3000, 25000}) {
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < points.length; i++) {
+                    if (HaversineUtil.calculateDistance(origin[0], origin[1], points[i][0], points[i][1]) <= radiusKm) {
+                        expected.add(i);
+                    }
+                }
+                List<Integer> actual = batch.within(origin[0], origin[1], radiusKm).stream()
+                        .map(DistanceBatch.Match::index)
+                        .toList();
+                assertThat(actual).as("origin %s,%s radius %s", origin[0], origin[1], radiusKm).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void nearestReturnsTheClosestPointsInOrder() {
+        Random random = new Random(99);
+        double[][] points = randomPoints(random, 2000, 6.5, 7.5, 79.5, 80.5);
+        DistanceBatch batch = batchOf(points);
+        double lat = 6.9271;
+        double lng = 79.8612;
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < points.length; i++) {
+            if (HaversineUtil.calculateDistance(lat, lng, points[i][0], points[i][1]) <= 40) {
+                expected.add(i);
+            }
+        }
+        expected.sort(Comparator.comparingDouble(i -> HaversineUtil.calculateDistance(lat, lng, points[i][0], points[i][1])));
+
+        List<DistanceBatch.Match> nearest = batch.nearest(lat, lng, 40, 25);
+
+        assertThat(nearest).hasSize(25);
+        assertThat(nearest.stream().map(DistanceBatch.Match::index).toList()).isEqualTo(expected.subList(0, 25));
+        assertThat(batch.nearest(lat, lng, 40, 0)).isEmpty();
+        assertThat(batch.nearest(lat, lng, 40, points.length)).hasSize(expected.size());
+    }
+
+    @Test
+    void samePointIsZeroDistance() {
+        DistanceBatch batch = new DistanceBatch(1);
+        batch.add(6.9271, 79.8612);
+
+        assertThat(batch.distancesFrom(6.9271, 79.8612)[0]).isEqualTo(0.0);
+        assertThat(batch.within(6.9271, 79.8612, 0)).hasSize(1);
+    }
+
+    private static double[][] randomPoints(Random random, int count, double minLat, double maxLat,
+                                           double minLng, double maxLng) {
+        double[][] points = new double[count][];
+        for (int i = 0; i < count; i++) {
+            points[i] = new double[]{
+                    minLat + random.nextDouble() * (maxLat - minLat),
+                    minLng + random.nextDouble() * (maxLng - minLng)
+            };
+        }
+        return points;
+    }
+
+    private static DistanceBatch batchOf(double[][] points) {
+        DistanceBatch batch = new DistanceBatch(0);
+        for (double[] point : points) {
+            batch.add(point[0], point[1]);
+        }
+        return batch;
+    }
+}
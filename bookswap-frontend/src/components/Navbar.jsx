@@ -42,14 +42,22 @@ const Navbar = () => {
     }
   };
 
-  // Polling: Fetch unread count every 10 seconds
+  // Live updates: the server pushes new notifications and unread-count changes
+  const currentUserToken = currentUser?.token;
   useEffect(() => {
-    if (currentUser) {
-      fetchUnreadCount(); // Initial fetch
-      const interval = setInterval(fetchUnreadCount, 10000); // Poll every 10 seconds
-      return () => clearInterval(interval);
-    }
-  }, [currentUser]);
+    if (!currentUserToken) return;
+    return NotificationService.subscribe((name, data) => {
+      if (name === "unread-count") {
+        setUnreadCount(data.count);
+      } else if (name === "notification") {
+        // A coalesced notification comes back with the same id, so replace rather than duplicate it
+        setNotifications((previous) => [data, ...previous.filter((n) => n.id !== data.id)]);
+      } else if (name === "resync") {
+        fetchUnreadCount();
+        fetchNotifications();
+      }
+    });
+  }, [currentUserToken]);
 
   // Fetch notifications when dropdown opens
   useEffect(() => {
@@ -219,7 +227,7 @@ const Navbar = () => {
                                       {notification.message}
                                     </p>
                                     <p className="text-xs text-gray-500">
-                                      {getTimeAgo(notification.createdAt)}
+                                      {getTimeAgo(notification.lastEventAt || notification.createdAt)}
                                     </p>
                                   </div>
                                   {!notification.isRead && (
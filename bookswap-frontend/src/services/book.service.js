@@ -30,13 +30,19 @@ const addBook = (bookRequest) => {
 };
 
 
+// Listings are cursor-paginated: { items, next }. Callers that only need the first page
+// get response.data as the items array, the cursor for the next page is on response.next.
+const unwrapPage = (response) => ({ ...response, data: response.data.items, next: response.data.next });
+
 // --- OTHER SERVICE FUNCTIONS ---
-const getMyBooks = () => {
-    return axios.get(`${API_URL}/books/my-books`, { headers: authHeader() });
+const getMyBooks = (cursor, limit = 100) => {
+    return axios.get(`${API_URL}/books/my-books`, { headers: authHeader(), params: { cursor, limit } })
+        .then(unwrapPage);
 };
 
-const getExploreBooks = () => {
-    return axios.get(`${API_URL}/books/explore`, { headers: authHeader() });
+const getExploreBooks = (cursor, limit = 100) => {
+    return axios.get(`${API_URL}/books/explore`, { headers: authHeader(), params: { cursor, limit } })
+        .then(unwrapPage);
 };
 
 // This updateBook function would also need to be converted to a two-step process for editing
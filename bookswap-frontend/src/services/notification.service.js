@@ -14,9 +14,12 @@ const authHeader = () => {
 };
 
 class NotificationService {
-  // Get all notifications for current user
-  getNotifications() {
-    return axios.get(API_URL, { headers: authHeader() });
+  // Get one page of notifications, newest first. The list is cursor-paginated ({ items, next });
+  // response.data is unwrapped to the items array and the cursor for the next page is on response.next.
+  getNotifications(cursor, limit = 20) {
+    return axios
+      .get(API_URL, { headers: authHeader(), params: { cursor, limit } })
+      .then((response) => ({ ...response, data: response.data.items, next: response.data.next }));
   }
 
   // Get unread count
@@ -33,6 +36,73 @@ class NotificationService {
   markAllAsRead() {
     return axios.put(API_URL + "/mark-all-read", {}, { headers: authHeader() });
   }
+
+  // Open the Server-Sent Events stream and call onEvent(name, data) for each event.
+  // EventSource can't send the Authorization header, so the stream is read with fetch.
+  // Reconnects automatically; returns a function that closes the stream.
+  subscribe(onEvent) {
+    let controller = null;
+    let retryTimer = null;
+    let closed = false;
+
+    const connect = async () => {
+      controller = new AbortController();
+      try {
+        const response = await fetch(API_URL + "/stream", {
+          headers: { ...authHeader(), Accept: "text/event-stream" },
+          signal: controller.signal,
+        });
+        if (!response.ok || !response.body) {
+          throw new Error("Notification stream failed with status " + response.status);
+        }
+
+        const reader = response.body.getReader();
+        const decoder = new TextDecoder();
+        let buffer = "";
+        for (;;) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += decoder.decode(value, { stream: true });
+
+          // Events are separated by a blank line
+          let boundary;
+          while ((boundary = buffer.indexOf("\n\n")) >= 0) {
+            const rawEvent = buffer.slice(0, boundary);
+            buffer = buffer.slice(boundary + 2);
+            dispatch(rawEvent);
+          }
+        }
+      } catch (error) {
+        if (closed) return;
+        console.error("Notification stream error:", error);
+      }
+      if (!closed) {
+        retryTimer = setTimeout(connect, 5000);
+      }
+    };
+
+    const dispatch = (rawEvent) => {
+      let name = "message";
+      const dataLines = [];
+      rawEvent.split("\n").forEach((line) => {
+        if (line.startsWith("event:")) name = line.slice(6).trim();
+        else if (line.startsWith("data:")) dataLines.push(line.slice(5).trimStart());
+      });
+      if (dataLines.length === 0) return; // heartbeat comment
+      try {
+        onEvent(name, JSON.parse(dataLines.join("\n")));
+      } catch (error) {
+        console.error("Invalid notification event:", error);
+      }
+    };
+
+    connect();
+    return () => {
+      closed = true;
+      clearTimeout(retryTimer);
+      if (controller) controller.abort();
+    };
+  }
 }
 
 export default new NotificationService();
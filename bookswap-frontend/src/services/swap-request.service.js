@@ -30,21 +30,45 @@ const updateRequestStatus = (requestId, status) => {
     return axios.put(`${API_URL}/${requestId}`, { status }, { headers: authHeader() });
 };
 
+/**
+ * Accepts or declines several swap requests in one call.
+ * @param {Array<{requestId: number, status: string}>} items Up to 100 decisions.
+ * @returns One result per item: { requestId, status, applied, error }.
+ */
+const updateRequestStatuses = (items) => {
+    return axios.put(`${API_URL}/bulk`, { items }, { headers: authHeader() });
+};
+
+
+// Listings are cursor-paginated: { items, next }. response.data is unwrapped to the items array.
+const unwrapPage = (response) => ({ ...response, data: response.data.items, next: response.data.next });
 
-const getOutgoingRequests = () => {
-    return axios.get(`${API_URL}/outgoing`, { headers: authHeader() });
+const getOutgoingRequests = (cursor, limit = 100) => {
+    return axios.get(`${API_URL}/outgoing`, { headers: authHeader(), params: { cursor, limit } })
+        .then(unwrapPage);
 };
 
 
-const getIncomingRequests = () => {
-    return axios.get(`${API_URL}/incoming`, { headers: authHeader() });
+const getIncomingRequests = (cursor, limit = 100) => {
+    return axios.get(`${API_URL}/incoming`, { headers: authHeader(), params: { cursor, limit } })
+        .then(unwrapPage);
+};
+
+/**
+ * Suggested swap rings the current user is part of, shortest first.
+ * Each match is { size, hops: [{ requestId, bookId, bookTitle, bookPhotoUrl, requesterId, requesterName, ownerId, ownerName }] }.
+ */
+const getSuggestedMatches = () => {
+    return axios.get(`${API_URL}/matches`, { headers: authHeader() });
 };
 
 const SwapRequestService = {
     createRequest,
     updateRequestStatus,
+    updateRequestStatuses,
     getOutgoingRequests,
     getIncomingRequests,
+    getSuggestedMatches,
 };
 
 export default SwapRequestService;
\ No newline at end of file